@@ -0,0 +1,126 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Formats every event as ConsoleSink does, but into a buffer in memory instead of a stream, so that the
+// thread playing the game never waits on I/O. Whenever the buffer fills up it is handed over to a background
+// thread, which writes it to the target stream while the game goes on filling a new one. close hands over
+// what is left and waits until the background thread has written everything. A sink is fed by one thread
+// at a time (e.g. the games of a Simulator one after another), so the buffers are written in order
+public class AsyncSink extends ConsoleSink {
+
+    // bytes of text formatted before they are handed over to the background thread
+    private static final int BUFFER_SIZE = 1 << 16;
+    // buffers waiting to be written before the game has to wait for the background thread,
+    // so that a slow stream holds the game back instead of filling the memory
+    private static final int MAX_PENDING = 64;
+    // handed over last, the background thread stops when it takes it
+    private static final byte[] END = new byte[0];
+
+    private final HandOff handOff;
+    private final OutputStream target;
+    private final Thread writer;
+    // the first error writing to the target, reported on close
+    private volatile IOException failure;
+
+    public AsyncSink(OutputStream target) {
+        this(new HandOff(), target);
+    }
+
+    private AsyncSink(HandOff handOff, OutputStream target) {
+        // flushed by close only, the text is written out by the background thread a buffer at a time
+        super(new PrintStream(handOff, false));
+        this.handOff = handOff;
+        this.target = target;
+        this.writer = new Thread(this::writeAll, "AsyncSink writer");
+        // a game that never closes its sink doesn't keep the program running
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // hands over the rest of the text and waits until the background thread has written all of it
+    public void close() {
+        super.close();
+        try {
+            this.handOff.finish();
+            this.writer.join();
+            this.target.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            this.failure = e;
+        }
+        if (this.failure != null) {
+            System.err.println("Could not write the output of the game: " + this.failure.getMessage());
+        }
+    }
+
+    // run by the background thread, writes the buffers in the order they were handed over until the end
+    private void writeAll() {
+        try {
+            for (byte[] buffer = this.handOff.pending.take(); buffer != END; buffer = this.handOff.pending.take()) {
+                // after a failure the buffers are still taken, so that the game is never held back
+                if (this.failure == null) {
+                    try {
+                        this.target.write(buffer);
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The stream the formatted text is printed to: it collects the bytes in a buffer and queues full buffers
+    // for the background thread
+    private static class HandOff extends OutputStream {
+
+        private final BlockingQueue<byte[]> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int count = 0;
+
+        public void write(int b) throws IOException {
+            if (this.count == this.buffer.length) {
+                this.handOver(this.buffer);
+                this.buffer = new byte[BUFFER_SIZE];
+                this.count = 0;
+            }
+            this.buffer[this.count++] = (byte) b;
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (this.count == this.buffer.length) {
+                    this.handOver(this.buffer);
+                    this.buffer = new byte[BUFFER_SIZE];
+                    this.count = 0;
+                }
+                int copied = Math.min(length, this.buffer.length - this.count);
+                System.arraycopy(bytes, offset, this.buffer, this.count, copied);
+                this.count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        // hands over the partly filled buffer, then the end
+        void finish() throws InterruptedIOException {
+            if (this.count > 0) {
+                this.handOver(Arrays.copyOf(this.buffer, this.count));
+                this.count = 0;
+            }
+            this.handOver(END);
+        }
+
+        // waits if the background thread is MAX_PENDING buffers behind
+        private void handOver(byte[] buffer) throws InterruptedIOException {
+            try {
+                this.pending.put(buffer);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while handing over output to be written.");
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+public class AutoPilot implements CommandSource {
+
+    // Plays the human without user input, so that games can be simulated headless.
+    // The human greedily goes for the closest gold until it has enough to win, then for the closest exit.
+    // It doesn't try to avoid the bot, which makes it a fair baseline to measure bot difficulty against.
+
+    public String nextCommand(Human human) {
+
+        Tile tile = human.getTile();
+        Map map = human.getMap();
+        boolean hasEnoughGold = human.getGold() >= map.getGoldWinCondition();
+
+        // on an exit with enough gold, quit to win
+        if (hasEnoughGold && (tile instanceof ExitTile)) {
+            return "quit";
+        }
+
+        // standing on gold that is still needed
+        if (!hasEnoughGold && tile.hasGold()) {
+            return "pickup";
+        }
+
+        int start = map.getIndex(tile.getRow(), tile.getCol());
+        int firstStep;
+        if (hasEnoughGold) {
+            // exits never move, so the step towards the closest one is read from the map's exit field
+            firstStep = map.getExitField().getNextStep(start);
+        } else {
+            PathFinder pathFinder = map.getPathFinder();
+            int goal = pathFinder.findNearestGoal(start, false);
+            firstStep = goal == -1 ? -1 : pathFinder.getFirstStep(goal);
+        }
+
+        // nothing to go to, wait by looking until gold spawns
+        if (firstStep == -1) {
+            return "look";
+        }
+
+        // turn the first step of the path into a move command
+        if (firstStep == start - map.getColumns()) {
+            return "move n";
+        } else if (firstStep == start + map.getColumns()) {
+            return "move s";
+        } else if (firstStep == start + 1) {
+            return "move e";
+        }
+        return "move w";
+    }
+}
@@ -0,0 +1,345 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+public class Benchmark {
+
+    // Measures the hot paths of the game so that changes to them can be compared before being accepted:
+    //  1. Map construction from a map file
+    //  2. Map.print5by5center and Map.print of the whole map
+    //  3. SmartBot.findObjective
+    //  4. OmniscientBot.playTurn, from positions of real games
+    //  5. a full Game turn loop (AutoPilot human against OmniscientBot)
+    // Each benchmark is run on the shipped maps and on generated square maps of the given sizes.
+    // The verify mode checks the chase engines instead of timing anything (see verify), so that a change
+    // to one of them can be checked before it's measured. It exits with status 1 if any engine is wrong.
+
+    // Usage: java -cp out Benchmark [size ...]
+    //        java -cp out Benchmark verify [size ...]
+    // e.g. java -Xmx4g -cp out Benchmark 256 1024 2048
+
+    // Each benchmark is warmed up first so that the JIT compiler has compiled the hot path,
+    // then measured for a fixed amount of time
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    // sizes of the generated maps used when none are given
+    private static final int[] DEFAULT_SIZES = {256, 1024, 2048};
+    private static final int[] DEFAULT_VERIFY_SIZES = {64, 256};
+
+    // engines that must find paths exactly as long as a breadth-first search (HIERARCHICAL only finds
+    // paths close to the shortest)
+    private static final PathSearch[] EXACT_SEARCHES = {PathSearch.A_STAR, PathSearch.JUMP_POINT,
+            PathSearch.BIDIRECTIONAL};
+    // random starts verified on each map, and random targets from each start
+    private static final int VERIFY_STARTS = 50;
+    private static final int VERIFY_TARGETS = 20;
+
+    // games the OmniscientBot.playTurn positions are taken from, and after how many turns (always odd,
+    // so that it's the bot's turn)
+    private static final int BOT_TURN_SEEDS = 4;
+    private static final int[] BOT_TURN_TURNS = {1, 21};
+
+    // results are added to this so that the JIT compiler can't remove the work being measured
+    private static long blackhole = 0;
+
+    // discards everything the benchmarks print
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length > 0 && args[0].equals("verify")) {
+            int[] sizes = DEFAULT_VERIFY_SIZES;
+            if (args.length > 1) {
+                sizes = Arrays.stream(args).skip(1).mapToInt(Integer::parseInt).toArray();
+            }
+            System.exit(verifyAll(sizes) ? 0 : 1);
+        }
+
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        }
+
+        Benchmark benchmark = new Benchmark();
+        System.out.printf("%-28s %-22s %14s %14s\n", "Benchmark", "Map", "ns/op", "ops/s");
+
+        // 1. the shipped maps
+        for (File mapFile : Objects.requireNonNull(new File("maps").listFiles())) {
+            if (mapFile.getName().endsWith(".txt") && !mapFile.getName().startsWith("README")) {
+                benchmark.runAll(mapFile.getPath(), mapFile.getName());
+            }
+        }
+
+        // 2. generated maps of increasing size
+        for (int size : sizes) {
+            File mapFile = writeGeneratedMap("cavern", size);
+            benchmark.runAll(mapFile.getPath(), size + "x" + size);
+            mapFile.delete();
+        }
+
+        // printed so that the blackhole is used
+        System.out.println("(checksum " + blackhole + ")");
+    }
+
+    // runs every benchmark on the map file
+    private void runAll(String mapFilePath, String mapName) {
+
+        Map map = new Map(mapFilePath);
+        // built once here so that the games on copies of the map share it instead of building their own
+        map.getExitField();
+        Random rand = new Random(0);
+
+        measure("Map load", mapName, () -> {
+            Map loaded = new Map(mapFilePath);
+            blackhole += loaded.getGoldCount();
+            return 1;
+        });
+
+        measure("Map.print5by5center", mapName, () -> {
+            map.print5by5center(rand.nextInt(map.getRows()), rand.nextInt(map.getColumns()), this.discard);
+            return 1;
+        });
+
+        measure("Map.print", mapName, () -> {
+            map.print(this.discard);
+            return 1;
+        });
+
+        Game smartGame = this.newGame(map, "Normal");
+        SmartBot smartBot = (SmartBot) smartGame.getBot();
+        measure("SmartBot.findObjective", mapName, () -> {
+            smartBot.findObjective();
+            return 1;
+        });
+
+        // one op is one turn of the bot, from one of a fixed set of positions of real games that the game is
+        // restored to first, so that every turn is a chase and not a game the bot has already won
+        Game omniscientGame = this.newGame(map, "Impossible");
+        Bot omniscientBot = omniscientGame.getBot();
+        List<GameSnapshot> botTurns = this.findBotTurns(map);
+        int[] nextTurn = {0};
+        measureTimed("OmniscientBot.playTurn", mapName, () -> {
+            omniscientGame.restore(botTurns.get(nextTurn[0]++ % botTurns.size()));
+            long startTime = System.nanoTime();
+            omniscientBot.playTurn();
+            long elapsed = System.nanoTime() - startTime;
+            blackhole += omniscientBot.getGold();
+            return elapsed;
+        });
+
+        // one op is one turn, a new game is started whenever the last one ends
+        measure("Game turn loop", mapName, () -> {
+            Game game = this.newGame(map, "Impossible");
+            game.setMaxTurns(1000);
+            game.play();
+            return game.getTurns();
+        });
+    }
+
+    // creates a headless game on a copy of the map, with the human played by the AutoPilot
+    private Game newGame(Map map, String difficulty) {
+        return newGame(map, difficulty, 0);
+    }
+
+    private Game newGame(Map map, String difficulty, long seed) {
+        return new Game(new Map(map, new GameRandom(seed)), new AutoPilot(), difficulty, new NullSink());
+    }
+
+    // Snapshots of games against the OmniscientBot when it's the bot's turn, after the human's first turn and
+    // after a few more turns of both, from a few seeds. Positions where the game has already ended are left out
+    private List<GameSnapshot> findBotTurns(Map map) {
+        List<GameSnapshot> botTurns = new ArrayList<>();
+        for (long seed = 0; seed < BOT_TURN_SEEDS; seed++) {
+            for (int turns : BOT_TURN_TURNS) {
+                Game game = this.newGame(map, "Impossible", seed);
+                game.setMaxTurns(turns);
+                if (game.play() == GameResult.TURN_LIMIT) {
+                    botTurns.add(game.snapshot());
+                }
+            }
+        }
+        if (botTurns.isEmpty()) {
+            throw new RuntimeException("Every game on " + map.getMapName() + " ended before the bot's turn.");
+        }
+        return botTurns;
+    }
+
+    // Warms up then measures the operation, which returns how many ops it performed, and prints the result
+    private static void measure(String name, String mapName, LongSupplier operation) {
+
+        // warm up
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            operation.getAsLong();
+        }
+
+        // measure
+        long ops = 0;
+        long startTime = System.nanoTime();
+        long elapsed;
+        do {
+            ops += operation.getAsLong();
+            elapsed = System.nanoTime() - startTime;
+        } while (elapsed < MEASURE_NANOS);
+
+        printResult(name, mapName, (double) elapsed / Math.max(ops, 1));
+    }
+
+    // Like measure, but one op is one call of the operation, which returns how many nanoseconds of it are
+    // measured, so that preparing each op (e.g. restoring a snapshot) isn't counted
+    private static void measureTimed(String name, String mapName, LongSupplier timedOperation) {
+
+        // warm up
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            timedOperation.getAsLong();
+        }
+
+        // measure
+        long ops = 0;
+        long measured = 0;
+        long measureEnd = System.nanoTime() + MEASURE_NANOS;
+        do {
+            measured += timedOperation.getAsLong();
+            ops++;
+        } while (System.nanoTime() < measureEnd);
+
+        printResult(name, mapName, (double) measured / ops);
+    }
+
+    private static void printResult(String name, String mapName, double nanosPerOp) {
+        System.out.printf("%-28s %-22s %14.1f %14.1f\n", name, mapName, nanosPerOp, 1e9 / nanosPerOp);
+    }
+
+    // Verifies the chase engines on the shipped maps and on generated maps of every layout and of the sizes.
+    // Returns whether they were all right
+    private static boolean verifyAll(int[] sizes) throws IOException {
+
+        int mismatches = 0;
+        for (File mapFile : Objects.requireNonNull(new File("maps").listFiles())) {
+            if (mapFile.getName().endsWith(".txt") && !mapFile.getName().startsWith("README")) {
+                mismatches += verify(mapFile.getPath(), mapFile.getName());
+            }
+        }
+        for (int size : sizes) {
+            for (String layout : new String[]{"maze", "cavern", "rooms"}) {
+                File mapFile = writeGeneratedMap(layout, size);
+                mismatches += verify(mapFile.getPath(), layout + " " + size + "x" + size);
+                mapFile.delete();
+            }
+        }
+
+        System.out.println(mismatches == 0 ? "All engines verified." : mismatches + " mismatches.");
+        return mismatches == 0;
+    }
+
+    // Checks every engine against a breadth-first search from random starts to random targets, always seeded
+    // the same way. The exact engines must find a path exactly as long as the shortest, and none when
+    // maxLength is one shorter than it. HIERARCHICAL must find a path whenever there is one.
+    // Prints and returns the number of mismatches
+    private static int verify(String mapFilePath, String mapName) {
+
+        Map map = new Map(mapFilePath);
+        PathFinder pathFinder = map.getPathFinder();
+        PathSearch mapSearch = map.getPathSearch();
+        Random rand = new Random(0);
+
+        int cellCount = map.getCellCount();
+        int[] openCells = new int[cellCount];
+        int openCount = 0;
+        for (int index = 0; index < cellCount; index++) {
+            if (map.canEnter(index)) {
+                openCells[openCount++] = index;
+            }
+        }
+        if (openCount == 0) {
+            return 0;
+        }
+
+        int[] distance = new int[cellCount];
+        int[] queue = new int[cellCount];
+        int mismatches = 0;
+        int pairs = 0;
+        for (int s = 0; s < VERIFY_STARTS; s++) {
+            int start = openCells[rand.nextInt(openCount)];
+            breadthFirstSearch(map, start, distance, queue);
+            for (int t = 0; t < VERIFY_TARGETS; t++) {
+                int target = openCells[rand.nextInt(openCount)];
+                int shortest = distance[target];
+                pairs++;
+
+                for (PathSearch search : EXACT_SEARCHES) {
+                    map.setPathSearch(search);
+                    int length = findPathLength(pathFinder, start, target, Integer.MAX_VALUE);
+                    int bounded = shortest > 0 ? findPathLength(pathFinder, start, target, shortest - 1) : -1;
+                    if (length != shortest || bounded != -1) {
+                        System.out.println(mapName + ": " + search.getKeyword() + " from " + start + " to " + target
+                                + " found " + length + " (" + bounded + " within " + (shortest - 1)
+                                + ") but the shortest path is " + shortest);
+                        mismatches++;
+                    }
+                }
+
+                map.setPathSearch(PathSearch.HIERARCHICAL);
+                boolean found = pathFinder.findPathTo(start, target, Integer.MAX_VALUE) != -1;
+                if (found != (shortest != -1)) {
+                    System.out.println(mapName + ": hpa from " + start + " to " + target + (found ? " found" : " missed")
+                            + " a path but the shortest path is " + shortest);
+                    mismatches++;
+                }
+            }
+        }
+        map.setPathSearch(mapSearch);
+
+        System.out.printf("%-28s %-22s %14s\n", "verify", mapName,
+                mismatches == 0 ? pairs + " pairs ok" : mismatches + " wrong");
+        return mismatches;
+    }
+
+    // length of the path the map's engine finds from start to target within maxLength, or -1 if it finds none
+    private static int findPathLength(PathFinder pathFinder, int start, int target, int maxLength) {
+        if (pathFinder.findPathTo(start, target, maxLength) == -1) {
+            return -1;
+        }
+        return pathFinder.getPath(target).length - 1;
+    }
+
+    // the distance of every cell from the start, or -1 for the cells that can't be reached, found the
+    // simplest way so that it can be trusted as the reference
+    private static void breadthFirstSearch(Map map, int start, int[] distance, int[] queue) {
+        Arrays.fill(distance, -1);
+        distance[start] = 0;
+        queue[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int row = map.getRowOf(cell);
+            int col = map.getColOf(cell);
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+                if (map.isOutOfBounds(row + Map.ROW_OFFSETS[d], col + Map.COL_OFFSETS[d])) {
+                    continue;
+                }
+                int neighbour = map.getIndex(row + Map.ROW_OFFSETS[d], col + Map.COL_OFFSETS[d]);
+                if (distance[neighbour] == -1 && map.canEnter(neighbour)) {
+                    distance[neighbour] = distance[cell] + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    // Writes a generated map of this layout and size (see MapGenerator), always generated with the same seed
+    // so that results can be compared between runs
+    private static File writeGeneratedMap(String layout, int size) throws IOException {
+
+        File mapFile = File.createTempFile("benchmark_" + layout + "_" + size + "_", ".txt");
+        MapGenerator generator = new MapGenerator(size, size, size);
+        generator.generate(layout, 0.005, 3);
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(mapFile), 1 << 16)) {
+            generator.write(out, "Benchmark " + size + "x" + size, 5);
+        }
+        return mapFile;
+    }
+}
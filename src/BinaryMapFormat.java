@@ -0,0 +1,85 @@
+import java.io.*;
+import java.nio.charset.*;
+
+public class BinaryMapFormat {
+
+    // A compact binary version of the text map format, which loads without parsing any characters.
+    // MapFileReader detects it by the magic bytes at the start of the file. All numbers are big-endian:
+    //  magic       4 bytes   'D' 'O' 'D' 'M'
+    //  version     1 byte    VERSION
+    //  rows        int
+    //  columns     int
+    //  win         int       gold win condition
+    //  gold count  int       number of tiles with gold on them
+    //  search      1 byte    ordinal of the PathSearch that chases the human (from version 2)
+    //  name        unsigned short length followed by that many UTF-8 bytes
+    //  terrain     (rows * columns + 3) / 4 bytes, 2 bits per tile (Map.EMPTY, Map.WALL or Map.EXIT),
+    //              tile i is in byte i / 4 at bit (i % 4) * 2
+    //  gold        (rows * columns + 7) / 8 bytes, 1 bit per tile, tile i is in byte i / 8 at bit i % 8
+
+    // Usage: java -cp out BinaryMapFormat <text map file> [binary map file]
+    // converts a text map to a binary map, by default next to it with the .dodm extension
+
+    static final byte[] MAGIC = {'D', 'O', 'D', 'M'};
+    static final byte VERSION = 2;
+    static final String EXTENSION = ".dodm";
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 1) {
+            System.err.println("Usage: java -cp out BinaryMapFormat <text map file> [binary map file]");
+            System.exit(1);
+        }
+
+        String textFilePath = args[0];
+        String binaryFilePath;
+        if (args.length > 1) {
+            binaryFilePath = args[1];
+        } else if (textFilePath.endsWith(".txt")) {
+            binaryFilePath = textFilePath.substring(0, textFilePath.length() - 4) + EXTENSION;
+        } else {
+            binaryFilePath = textFilePath + EXTENSION;
+        }
+
+        write(new Map(textFilePath), binaryFilePath);
+        System.out.println("Converted " + textFilePath + " to " + binaryFilePath);
+    }
+
+    // writes the terrain and gold of the map to a binary map file
+    public static void write(Map map, String filePath) throws IOException {
+
+        int cellCount = map.getCellCount();
+        byte[] terrain = new byte[(cellCount + 3) / 4];
+        byte[] gold = new byte[(cellCount + 7) / 8];
+
+        // pack each tile into its 2 terrain bits and 1 gold bit
+        for (int i = 0; i < cellCount; i++) {
+            byte cell = map.getCell(i);
+            terrain[i >> 2] |= (byte) ((cell & Map.TERRAIN_MASK) << ((i & 3) * 2));
+            if ((cell & Map.GOLD) != 0) {
+                gold[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+
+        // plain UTF-8, which MapFileReader decodes, rather than the modified UTF-8 of DataOutputStream.writeUTF
+        byte[] name = map.getMapName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) {
+            throw new RuntimeException("The map name is " + name.length + " bytes long in UTF-8, it must be at most "
+                    + 0xFFFF + " bytes to be written to a binary map file.");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(map.getRows());
+            out.writeInt(map.getColumns());
+            out.writeInt(map.getGoldWinCondition());
+            out.writeInt(map.getGoldCount());
+            out.writeByte(map.getPathSearch().ordinal());
+            out.writeShort(name.length);
+            out.write(name);
+            out.write(terrain);
+            out.write(gold);
+        }
+    }
+}
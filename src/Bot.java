@@ -3,8 +3,8 @@ abstract class Bot extends Player {
     // up, down, left, right
     public int[][] directions = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
 
-    public Bot(Map mp, Game g) {
-        super(mp, g);
+    public Bot(Map mp, Game g, boolean spawn) {
+        super(mp, g, spawn);
     }
 
     // Bot leaves the tile it's currently on
@@ -25,24 +25,6 @@ abstract class Bot extends Player {
     }
 
     public void printBotTurn() {
-        System.out.println("Bot's turn");
-    }
-
-    // Is the tile argument a current objective for the bot to chase/go to?
-    public boolean isCurrentObjective(Tile tile) {
-
-        // Can the bot go to the exit and win?
-        boolean botHasEnoughGold = this.hasEnoughGoldToWin();
-
-        // Bot objectives:
-        //  ExitTile (must have enough gold):
-        //      go to exit
-        //  Gold (must have less gold than needed to win):
-        //      go loot gold
-        //  Human:
-        //      chase human
-
-        return (tile.hasHuman() || (botHasEnoughGold && (tile instanceof ExitTile))
-                || tile.hasGold() && !botHasEnoughGold);
+        this.getOutput().botTurn();
     }
 }
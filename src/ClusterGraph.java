@@ -0,0 +1,397 @@
+import java.util.*;
+
+public class ClusterGraph {
+
+    // Hierarchical path finding (HPA*) for maps too large to search tile by tile every turn.
+    // The grid is split into square clusters of CLUSTER_SIZE x CLUSTER_SIZE tiles. Wherever two neighbouring
+    // clusters share a run of open tiles along their border (an entrance), a pair of nodes is placed on
+    // either side of it, joined by an edge of length 1. Inside each cluster, every pair of nodes that can
+    // reach each other is joined by an edge as long as the shortest path between them within the cluster.
+    // A query then only searches the tiles of the start and target clusters, joins them to this much smaller
+    // graph and runs A* over the graph, so the path found is close to, but not always, the shortest.
+    // Only the first cluster of the path is refined back into tiles, since a bot only needs its next step.
+    // Walls never change, so the graph is built once, by the first query.
+
+    static final int CLUSTER_SIZE = 32;
+    // entrances at least this long get a node pair at each end instead of one in the middle,
+    // so that paths along a wide opening don't all have to squeeze through its middle
+    private static final int LONG_ENTRANCE = 6;
+
+    private final Map map;
+    private final int rows;
+    private final int columns;
+    private final int clusterRows;
+    private final int clusterColumns;
+    // the graph has been built
+    private boolean built = false;
+
+    // nodes of the graph, each on one cell
+    private int nodeCount;
+    private int[] nodeCell;
+    private int[] nodeCluster;
+    // nodes of each cluster
+    private int[][] clusterNodes;
+    private int[] clusterNodeCounts;
+    // edges of each node, as target nodes with their lengths
+    private int[][] edgeTargets;
+    private int[][] edgeLengths;
+    private int[] edgeCounts;
+
+    // memory for searching the graph, with one extra node standing for the target of a query
+    private int[] nodeDistance;
+    private int[] nodeParent;
+    private int[] visitedEpoch;
+    private int[] closedEpoch;
+    private int epoch = 0;
+    private final MinHeap open = new MinHeap(1024);
+
+    // breadth-first searches limited to one cluster, used to build the graph and join queries to it
+    private final ClusterSearch startSearch = new ClusterSearch();
+    private final ClusterSearch targetSearch = new ClusterSearch();
+
+    public ClusterGraph(Map map) {
+        this.map = map;
+        this.rows = map.getRows();
+        this.columns = map.getColumns();
+        this.clusterRows = (this.rows + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clusterColumns = (this.columns + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+    }
+
+    // cluster of the cell at this index
+    int getCluster(int index) {
+        return (this.map.getRowOf(index) / CLUSTER_SIZE) * this.clusterColumns + this.map.getColOf(index) / CLUSTER_SIZE;
+    }
+
+    // Returns the first cell to move to on a path from the start cell to the target cell in another cluster
+    // that is at most maxLength long, or -1 if no such path was found. The path is close to the shortest,
+    // so a path just under maxLength may be missed
+    public int findFirstStep(int start, int target, int maxLength) {
+
+        if (!this.built) {
+            this.build();
+        }
+
+        // 1. join the start and target to the nodes of their clusters
+        this.startSearch.run(start);
+        this.targetSearch.run(target);
+        int targetCluster = this.getCluster(target);
+        int targetRow = this.map.getRowOf(target);
+        int targetCol = this.map.getColOf(target);
+        // the extra node standing for the target
+        int targetNode = this.nodeCount;
+
+        // 2. A* over the graph, from the nodes of the start cluster to the target
+        this.epoch++;
+        if (this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.visitedEpoch, 0);
+            Arrays.fill(this.closedEpoch, 0);
+            this.epoch = 1;
+        }
+        this.open.clear();
+
+        int startCluster = this.getCluster(start);
+        for (int i = 0; i < this.clusterNodeCounts[startCluster]; i++) {
+            int node = this.clusterNodes[startCluster][i];
+            int distance = this.startSearch.getDistance(this.nodeCell[node]);
+            if (distance != -1) {
+                this.relax(node, distance, -1, targetRow, targetCol, maxLength);
+            }
+        }
+
+        boolean found = false;
+        while (!this.open.isEmpty()) {
+
+            int node = this.open.pop();
+            // a node can be queued again with a shorter path, only the first time it's polled counts
+            if (this.closedEpoch[node] == this.epoch) {
+                continue;
+            }
+            this.closedEpoch[node] = this.epoch;
+
+            if (node == targetNode) {
+                found = true;
+                break;
+            }
+
+            int distance = this.nodeDistance[node];
+
+            // nodes in the target's cluster lead to the target through the cluster
+            if (this.nodeCluster[node] == targetCluster) {
+                int toTarget = this.targetSearch.getDistance(this.nodeCell[node]);
+                if (toTarget != -1) {
+                    this.relax(targetNode, distance + toTarget, node, targetRow, targetCol, maxLength);
+                }
+            }
+
+            for (int e = 0; e < this.edgeCounts[node]; e++) {
+                this.relax(this.edgeTargets[node][e], distance + this.edgeLengths[node][e], node,
+                        targetRow, targetCol, maxLength);
+            }
+        }
+
+        if (!found) {
+            return -1;
+        }
+
+        // 3. the first node of the path that isn't on the start cell
+        int firstNode = -1;
+        for (int node = this.nodeParent[targetNode]; node != -1; node = this.nodeParent[node]) {
+            if (this.nodeCell[node] != start) {
+                firstNode = node;
+            }
+        }
+        int firstCell = this.nodeCell[firstNode];
+
+        // 4. refine only the start cluster back into tiles. A node outside it is across an entrance
+        // from the start cell, so it's the next step itself
+        if (this.nodeCluster[firstNode] != startCluster) {
+            return firstCell;
+        }
+        return this.startSearch.getFirstStep(firstCell);
+    }
+
+    // queues the node if this is the shortest path to it found so far and it can still be short enough
+    private void relax(int node, int distance, int parent, int targetRow, int targetCol, int maxLength) {
+        if (this.visitedEpoch[node] == this.epoch && this.nodeDistance[node] <= distance) {
+            return;
+        }
+        int remaining = 0;
+        if (node < this.nodeCount) {
+            int cell = this.nodeCell[node];
+            remaining = Math.abs(this.map.getRowOf(cell) - targetRow) + Math.abs(this.map.getColOf(cell) - targetCol);
+        }
+        if (remaining > maxLength - distance) {
+            return;
+        }
+        this.visitedEpoch[node] = this.epoch;
+        this.nodeDistance[node] = distance;
+        this.nodeParent[node] = parent;
+        this.open.push(MinHeap.pack(distance + remaining, remaining), node);
+    }
+
+    // Builds the graph from scratch:
+    // 1. place node pairs on the entrances between every two neighbouring clusters
+    // 2. join the nodes of each cluster by the shortest paths between them within the cluster
+    private void build() {
+
+        int clusterCount = this.clusterRows * this.clusterColumns;
+        this.nodeCount = 0;
+        this.nodeCell = new int[Math.max(16, clusterCount * 4)];
+        this.nodeCluster = new int[this.nodeCell.length];
+        this.clusterNodes = new int[clusterCount][];
+        this.clusterNodeCounts = new int[clusterCount];
+        this.edgeTargets = new int[this.nodeCell.length][];
+        this.edgeLengths = new int[this.nodeCell.length][];
+        this.edgeCounts = new int[this.nodeCell.length];
+
+        // 1. entrances across the borders between clusters on top of each other, scanned a cluster wide at a time
+        for (int row = CLUSTER_SIZE - 1; row + 1 < this.rows; row += CLUSTER_SIZE) {
+            for (int left = 0; left < this.columns; left += CLUSTER_SIZE) {
+                int right = Math.min(left + CLUSTER_SIZE, this.columns);
+                this.addEntrances(this.map.getIndex(row, left), 1, right - left, this.columns);
+            }
+        }
+        // and across the borders between clusters side by side
+        for (int col = CLUSTER_SIZE - 1; col + 1 < this.columns; col += CLUSTER_SIZE) {
+            for (int top = 0; top < this.rows; top += CLUSTER_SIZE) {
+                int bottom = Math.min(top + CLUSTER_SIZE, this.rows);
+                this.addEntrances(this.map.getIndex(top, col), this.columns, bottom - top, 1);
+            }
+        }
+
+        // 2. paths between the nodes of each cluster
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            int[] nodes = this.clusterNodes[cluster];
+            int count = this.clusterNodeCounts[cluster];
+            for (int i = 0; i < count; i++) {
+                this.startSearch.run(this.nodeCell[nodes[i]]);
+                for (int j = i + 1; j < count; j++) {
+                    int distance = this.startSearch.getDistance(this.nodeCell[nodes[j]]);
+                    if (distance != -1) {
+                        this.addEdge(nodes[i], nodes[j], distance);
+                        this.addEdge(nodes[j], nodes[i], distance);
+                    }
+                }
+            }
+        }
+
+        // memory for searching, including the extra node for the target
+        this.nodeDistance = new int[this.nodeCount + 1];
+        this.nodeParent = new int[this.nodeCount + 1];
+        this.visitedEpoch = new int[this.nodeCount + 1];
+        this.closedEpoch = new int[this.nodeCount + 1];
+        this.epoch = 0;
+        this.built = true;
+    }
+
+    // Finds the entrances along one cluster's stretch of a border, which is length cells long starting
+    // at first and moving by step, with the neighbouring cluster's cells across from them at +across
+    private void addEntrances(int first, int step, int length, int across) {
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int cell = first + i * step;
+            boolean open = i < length && this.map.canEnter(cell) && this.map.canEnter(cell + across);
+            if (open && runStart == -1) {
+                runStart = i;
+            } else if (!open && runStart != -1) {
+                int runLength = i - runStart;
+                if (runLength >= LONG_ENTRANCE) {
+                    this.addTransition(first + runStart * step, across);
+                    this.addTransition(first + (i - 1) * step, across);
+                } else {
+                    this.addTransition(first + (runStart + runLength / 2) * step, across);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    // joins the cell to the cell across the border from it with a pair of nodes
+    private void addTransition(int cell, int across) {
+        int node = this.getOrAddNode(cell);
+        int acrossNode = this.getOrAddNode(cell + across);
+        this.addEdge(node, acrossNode, 1);
+        this.addEdge(acrossNode, node, 1);
+    }
+
+    // node on the cell, which a cell at the corner of a cluster may already have from another entrance
+    private int getOrAddNode(int cell) {
+        int cluster = this.getCluster(cell);
+        int[] nodes = this.clusterNodes[cluster];
+        int count = this.clusterNodeCounts[cluster];
+        for (int i = 0; i < count; i++) {
+            if (this.nodeCell[nodes[i]] == cell) {
+                return nodes[i];
+            }
+        }
+
+        if (this.nodeCount == this.nodeCell.length) {
+            int capacity = this.nodeCount * 2;
+            this.nodeCell = Arrays.copyOf(this.nodeCell, capacity);
+            this.nodeCluster = Arrays.copyOf(this.nodeCluster, capacity);
+            this.edgeTargets = Arrays.copyOf(this.edgeTargets, capacity);
+            this.edgeLengths = Arrays.copyOf(this.edgeLengths, capacity);
+            this.edgeCounts = Arrays.copyOf(this.edgeCounts, capacity);
+        }
+        int node = this.nodeCount++;
+        this.nodeCell[node] = cell;
+        this.nodeCluster[node] = cluster;
+
+        if (nodes == null) {
+            nodes = new int[4];
+        } else if (count == nodes.length) {
+            nodes = Arrays.copyOf(nodes, count * 2);
+        }
+        nodes[count] = node;
+        this.clusterNodes[cluster] = nodes;
+        this.clusterNodeCounts[cluster] = count + 1;
+        return node;
+    }
+
+    private void addEdge(int from, int to, int length) {
+        int count = this.edgeCounts[from];
+        if (this.edgeTargets[from] == null) {
+            this.edgeTargets[from] = new int[4];
+            this.edgeLengths[from] = new int[4];
+        } else if (count == this.edgeTargets[from].length) {
+            this.edgeTargets[from] = Arrays.copyOf(this.edgeTargets[from], count * 2);
+            this.edgeLengths[from] = Arrays.copyOf(this.edgeLengths[from], count * 2);
+        }
+        this.edgeTargets[from][count] = to;
+        this.edgeLengths[from][count] = length;
+        this.edgeCounts[from] = count + 1;
+    }
+
+    // Breadth-first search from one cell that never leaves the cluster the cell is in.
+    // Cells are numbered within the cluster, so the memory is the size of a cluster rather than the map
+    private class ClusterSearch {
+
+        private final int[] queue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        private final int[] distance = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        private final int[] parent = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        private final int[] visitedEpoch = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        private int epoch = 0;
+        // bounds of the cluster searched, and where the search started within it
+        private int top;
+        private int left;
+        private int height;
+        private int width;
+        private int start;
+
+        void run(int startCell) {
+
+            this.epoch++;
+            if (this.epoch == Integer.MAX_VALUE) {
+                Arrays.fill(this.visitedEpoch, 0);
+                this.epoch = 1;
+            }
+
+            Map map = ClusterGraph.this.map;
+            int startRow = map.getRowOf(startCell);
+            int startCol = map.getColOf(startCell);
+            this.top = startRow - startRow % CLUSTER_SIZE;
+            this.left = startCol - startCol % CLUSTER_SIZE;
+            this.height = Math.min(CLUSTER_SIZE, ClusterGraph.this.rows - this.top);
+            this.width = Math.min(CLUSTER_SIZE, ClusterGraph.this.columns - this.left);
+            this.start = (startRow - this.top) * CLUSTER_SIZE + (startCol - this.left);
+
+            int head = 0;
+            int tail = 0;
+            this.queue[tail++] = this.start;
+            this.visitedEpoch[this.start] = this.epoch;
+            this.distance[this.start] = 0;
+
+            while (head < tail) {
+                int local = this.queue[head++];
+                int row = local / CLUSTER_SIZE;
+                int col = local % CLUSTER_SIZE;
+                // up, down, left, right while staying inside the cluster
+                for (int d = 0; d < 4; d++) {
+                    int neighbourRow = row + (d == 0 ? -1 : d == 1 ? 1 : 0);
+                    int neighbourCol = col + (d == 2 ? -1 : d == 3 ? 1 : 0);
+                    if (neighbourRow < 0 || neighbourRow >= this.height || neighbourCol < 0 || neighbourCol >= this.width) {
+                        continue;
+                    }
+                    int neighbour = neighbourRow * CLUSTER_SIZE + neighbourCol;
+                    if (this.visitedEpoch[neighbour] == this.epoch
+                            || !map.canEnter(map.getIndex(this.top + neighbourRow, this.left + neighbourCol))) {
+                        continue;
+                    }
+                    this.visitedEpoch[neighbour] = this.epoch;
+                    this.distance[neighbour] = this.distance[local] + 1;
+                    this.parent[neighbour] = local;
+                    this.queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        // distance from the start of the last search to the cell, or -1 if it wasn't reached
+        int getDistance(int cell) {
+            int local = this.toLocal(cell);
+            if (local == -1 || this.visitedEpoch[local] != this.epoch) {
+                return -1;
+            }
+            return this.distance[local];
+        }
+
+        // first cell to move to from the start of the last search towards the cell, which it reached
+        int getFirstStep(int cell) {
+            int local = this.toLocal(cell);
+            while (this.parent[local] != this.start) {
+                local = this.parent[local];
+            }
+            return ClusterGraph.this.map.getIndex(this.top + local / CLUSTER_SIZE, this.left + local % CLUSTER_SIZE);
+        }
+
+        // number of the cell within the cluster searched, or -1 if it's outside it
+        private int toLocal(int cell) {
+            Map map = ClusterGraph.this.map;
+            int row = map.getRowOf(cell) - this.top;
+            int col = map.getColOf(cell) - this.left;
+            if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+                return -1;
+            }
+            return row * CLUSTER_SIZE + col;
+        }
+    }
+}
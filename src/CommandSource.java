@@ -0,0 +1,7 @@
+// Where the human player's commands come from. UserInput reads them from the user,
+// while AutoPilot and ScriptedCommands let games be played without anyone at the keyboard
+public interface CommandSource {
+
+    // returns the next command for the human to play this turn, in lower case (e.g. "move n")
+    String nextCommand(Human human);
+}
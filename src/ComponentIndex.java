@@ -0,0 +1,197 @@
+import java.util.*;
+
+public class ComponentIndex implements MapListener {
+
+    // Labels every tile that isn't a wall with the connected region of the map (component) it belongs to,
+    // so that whether one tile can be reached from another is known without searching: they can if and
+    // only if they have the same label. The gold, exits and humans in each component are counted too,
+    // so a search for them can be skipped when there are none it could reach.
+    // Labelling is a union-find pass over the grid: each tile is joined with the tiles to its left and above,
+    // always keeping the smaller index as the root, so a second pass in index order can turn every root
+    // into the next label and copy the label of its parent to every other tile in place.
+    // Walls never change, so the map is only labelled once and copies of it share the labels.
+    // Gold and players only spawn in the playable component: the largest one with an exit,
+    // or the largest one if no component has an exit, so they can always reach each other and an exit.
+
+    // what is counted in each component
+    static final int GOLD = 0;
+    static final int EXIT = 1;
+    static final int HUMAN = 2;
+    // label of the walls
+    static final int WALL = -1;
+
+    private final Map map;
+    // label of each cell, or WALL
+    private int[] componentOf;
+    private int componentCount;
+    // number of tiles in each component
+    private int[] sizes;
+    // number of gold, exit and human cells in each component, indexed [kind][component]
+    private final int[][] counts = new int[3][];
+    private int playableComponent;
+    private int largestComponent;
+
+    public ComponentIndex(Map map) {
+        this.map = map;
+        this.label();
+    }
+
+    // Labels a copy of a map with the same terrain as the one labelled by other, sharing its labels
+    public ComponentIndex(Map map, ComponentIndex other) {
+        this.map = map;
+        this.componentOf = other.componentOf;
+        this.componentCount = other.componentCount;
+        this.sizes = other.sizes;
+        this.playableComponent = other.playableComponent;
+        this.largestComponent = other.largestComponent;
+        this.count();
+    }
+
+    // component of the cell at this index, or WALL
+    public int getComponent(int index) {
+        return this.componentOf[index];
+    }
+
+    // can a player on the cell at one index walk to the cell at the other?
+    public boolean isConnected(int index, int otherIndex) {
+        return this.componentOf[index] != WALL && this.componentOf[index] == this.componentOf[otherIndex];
+    }
+
+    // number of cells of this kind (GOLD, EXIT or HUMAN) in the component
+    public int getCount(int kind, int component) {
+        return component == WALL ? 0 : this.counts[kind][component];
+    }
+
+    // number of tiles in the component
+    public int getSize(int component) {
+        return this.sizes[component];
+    }
+
+    // the component gold and players spawn in, or WALL if the map has no tiles to spawn on
+    public int getPlayableComponent() {
+        return this.playableComponent;
+    }
+
+    // the component with the most tiles, or WALL if the map is all walls
+    public int getLargestComponent() {
+        return this.largestComponent;
+    }
+
+    // keeps the counts in sync as gold is picked up or spawned and players move
+    public void cellChanged(int index, byte previousCell, byte cell) {
+        int component = this.componentOf[index];
+        if (component == WALL) {
+            return;
+        }
+        this.counts[GOLD][component] += ((cell & Map.GOLD) != 0 ? 1 : 0) - ((previousCell & Map.GOLD) != 0 ? 1 : 0);
+        this.counts[HUMAN][component] += ((cell & Map.HUMAN) != 0 ? 1 : 0) - ((previousCell & Map.HUMAN) != 0 ? 1 : 0);
+    }
+
+    // union-find pass over the grid, then counts what is in each component
+    private void label() {
+
+        Map map = this.map;
+        int columns = map.getColumns();
+        int cellCount = map.getCellCount();
+        // a new array, copies of the map may still share the old one
+        int[] parent = new int[cellCount];
+
+        // 1. join every tile with the open tiles to its left and above
+        for (int index = 0; index < cellCount; index++) {
+            if (!map.canEnter(index)) {
+                parent[index] = WALL;
+                continue;
+            }
+            parent[index] = index;
+            if (map.getColOf(index) > 0 && map.canEnter(index - 1)) {
+                union(parent, index - 1, index);
+            }
+            if (index >= columns && map.canEnter(index - columns)) {
+                union(parent, index - columns, index);
+            }
+        }
+
+        // 2. roots become labels in index order. The parent of every other tile has a smaller index,
+        // so it has already been given its root's label when the tile is reached
+        int componentCount = 0;
+        int[] sizes = new int[16];
+        for (int index = 0; index < cellCount; index++) {
+            int root = parent[index];
+            if (root == WALL) {
+                continue;
+            }
+            int component;
+            if (root == index) {
+                component = componentCount++;
+                if (component == sizes.length) {
+                    sizes = Arrays.copyOf(sizes, component * 2);
+                }
+            } else {
+                component = parent[root];
+            }
+            parent[index] = component;
+            sizes[component]++;
+        }
+
+        this.componentOf = parent;
+        this.componentCount = componentCount;
+        this.sizes = Arrays.copyOf(sizes, componentCount);
+        this.count();
+    }
+
+    // counts the gold, exits and humans of each component, then picks the playable component
+    private void count() {
+        for (int kind = GOLD; kind <= HUMAN; kind++) {
+            this.counts[kind] = new int[this.componentCount];
+        }
+        for (int index = 0; index < this.componentOf.length; index++) {
+            int component = this.componentOf[index];
+            if (component == WALL) {
+                continue;
+            }
+            byte cell = this.map.getCell(index);
+            if ((cell & Map.GOLD) != 0) {
+                this.counts[GOLD][component]++;
+            }
+            if ((cell & Map.TERRAIN_MASK) == Map.EXIT) {
+                this.counts[EXIT][component]++;
+            }
+            if ((cell & Map.HUMAN) != 0) {
+                this.counts[HUMAN][component]++;
+            }
+        }
+
+        this.largestComponent = WALL;
+        int largestWithExit = WALL;
+        for (int component = 0; component < this.componentCount; component++) {
+            if (this.largestComponent == WALL || this.sizes[component] > this.sizes[this.largestComponent]) {
+                this.largestComponent = component;
+            }
+            if (this.counts[EXIT][component] > 0
+                    && (largestWithExit == WALL || this.sizes[component] > this.sizes[largestWithExit])) {
+                largestWithExit = component;
+            }
+        }
+        this.playableComponent = largestWithExit != WALL ? largestWithExit : this.largestComponent;
+    }
+
+    // Roots of the first pass, found by path halving. Parents only ever point to smaller indexes
+    private static int find(int[] parent, int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+    // joins the trees of the two cells under the smaller of their roots
+    private static void union(int[] parent, int first, int second) {
+        int firstRoot = find(parent, first);
+        int secondRoot = find(parent, second);
+        if (firstRoot < secondRoot) {
+            parent[secondRoot] = firstRoot;
+        } else if (secondRoot < firstRoot) {
+            parent[firstRoot] = secondRoot;
+        }
+    }
+}
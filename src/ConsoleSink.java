@@ -0,0 +1,76 @@
+import java.io.*;
+
+// Prints every event as text to a stream as soon as it happens, System.out for a game played at the console
+public class ConsoleSink implements OutputSink {
+
+    private final PrintStream out;
+
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+    }
+
+    public void message(String text) {
+        this.out.println(text);
+    }
+
+    public void prompt(String text) {
+        this.out.print(text);
+    }
+
+    public void humanTurn() {
+        this.out.print("Your turn: ");
+    }
+
+    public void botTurn() {
+        this.out.println("Bot's turn");
+    }
+
+    public void goldToWin(int gold) {
+        this.out.println("Gold to win: " + gold);
+    }
+
+    public void goldOwned(int gold) {
+        this.out.println("Gold owned: " + gold);
+    }
+
+    public void moved(boolean success) {
+        this.out.println(success ? "Success" : "Fail");
+    }
+
+    public void pickedUp(boolean success, int gold) {
+        this.out.print(success ? "Success. " : "Fail. ");
+        this.out.println("Gold owned: " + gold);
+    }
+
+    public void invalidCommand() {
+        this.out.println("Fail, not a valid command.");
+    }
+
+    public void look(Map map, int rowCenter, int colCenter) {
+        map.print5by5center(rowCenter, colCenter, this.out);
+    }
+
+    public void gameOver(GameResult result) {
+        switch (result) {
+            case CAUGHT:
+                this.out.println("LOSE. The bot caught you!");
+                break;
+            case WIN:
+                this.out.println("WIN. You escaped the Dungeon of Doom!");
+                break;
+            case BOT_WON:
+                this.out.println("LOSE. The bot collected enough gold and won!");
+                break;
+            case QUIT:
+                this.out.println("LOSE. You quit the game early, better luck next time!");
+                break;
+            default:
+                this.out.println("The game reached its turn limit.");
+                break;
+        }
+    }
+
+    public void close() {
+        this.out.flush();
+    }
+}
@@ -1,16 +1,10 @@
 public class EmptyTile extends Tile {
 
-    char symbol = '.';
-
-    public EmptyTile(int row, int col) {
-        super(row, col);
+    public EmptyTile(Map map, int row, int col) {
+        super(map, row, col);
     }
 
     boolean canEnter() {
         return true;
     }
-
-    public void printTile() {
-        System.out.print(this.symbol);
-    }
 }
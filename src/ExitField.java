@@ -0,0 +1,237 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class ExitField {
+
+    // Stores, for every cell, the distance to the closest exit, found by one multi-source breadth-first search
+    // from every exit. Exits and walls never change, so the field is built once per map file and never updated:
+    // the distance to and the step towards the closest exit are then read straight from it.
+    // Copies of a map share the field.
+    // Distances are stored in a char[] (2 bytes per tile) unless the map has paths of 65535 tiles or more,
+    // which need an int[].
+    // Building it takes a search over the whole map, so the game saves the field in a sidecar file next to the
+    // map file and loads it from there again while the terrain it was built from is unchanged. The terrain is
+    // checked by its hash (see Map.getTerrainHash) rather than the map file's modification time, which copies
+    // and archives carry over. All numbers are big-endian:
+    //  magic          4 bytes   'D' 'O' 'D' 'X'
+    //  version        1 byte    VERSION
+    //  terrain hash   long      of the map the field was built from
+    //  cell count     int       rows * columns
+    //  width          1 byte    bytes per distance, 2 or 4
+    //  distances      cell count * width bytes, UNREACHABLE stored as the largest value of the width
+
+    static final byte[] MAGIC = {'D', 'O', 'D', 'X'};
+    static final byte VERSION = 2;
+
+    // distance of cells that cannot reach any exit (including walls), the same as ObjectiveField.UNREACHABLE
+    static final int UNREACHABLE = ObjectiveField.UNREACHABLE;
+    // how UNREACHABLE is stored in the char[] field
+    private static final char CHAR_UNREACHABLE = Character.MAX_VALUE;
+
+    private final int rows;
+    private final int columns;
+    // one of the two holds the distances, the other is null
+    private final char[] charDistances;
+    private final int[] intDistances;
+
+    private ExitField(int rows, int columns, char[] charDistances, int[] intDistances) {
+        this.rows = rows;
+        this.columns = columns;
+        this.charDistances = charDistances;
+        this.intDistances = intDistances;
+    }
+
+    // Loads the field of the map from the sidecar file of its map file, or builds it and saves it there
+    // if the sidecar file is missing or out of date
+    public static ExitField loadOrBuild(Map map, String mapFilePath) {
+        File sidecar = getSidecarFile(new File(mapFilePath));
+        long terrainHash = map.getTerrainHash();
+        ExitField field = load(map, sidecar, terrainHash);
+        if (field == null) {
+            field = build(map);
+            field.save(sidecar, terrainHash);
+        }
+        return field;
+    }
+
+    // Loads the field of the map from the sidecar file of its map file, or returns null if it's missing
+    // or out of date. Nothing is written, so that tools reading a map leave its directory as it was
+    public static ExitField load(Map map, String mapFilePath) {
+        File sidecar = getSidecarFile(new File(mapFilePath));
+        return sidecar.isFile() ? load(map, sidecar, map.getTerrainHash()) : null;
+    }
+
+    // the sidecar file of a map file, hidden in the same directory
+    public static File getSidecarFile(File mapFile) {
+        return new File(mapFile.getAbsoluteFile().getParentFile(), "." + mapFile.getName() + ".exits");
+    }
+
+    // multi-source breadth-first search from every exit of the map
+    public static ExitField build(Map map) {
+
+        int rows = map.getRows();
+        int columns = map.getColumns();
+        int cellCount = map.getCellCount();
+        int[] distance = new int[cellCount];
+        int[] queue = new int[cellCount];
+        Arrays.fill(distance, UNREACHABLE);
+
+        int tail = 0;
+        for (int index = 0; index < cellCount; index++) {
+            if ((map.getCell(index) & Map.TERRAIN_MASK) == Map.EXIT) {
+                distance[index] = 0;
+                queue[tail++] = index;
+            }
+        }
+
+        // cells are polled in order of distance, so the last one polled is the furthest
+        int furthest = 0;
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            furthest = distance[cell];
+            int row = map.getRowOf(cell);
+            int col = map.getColOf(cell);
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+                int neighbourRow = row + Map.ROW_OFFSETS[d];
+                int neighbourCol = col + Map.COL_OFFSETS[d];
+                if (neighbourRow < 0 || neighbourRow >= rows || neighbourCol < 0 || neighbourCol >= columns) {
+                    continue;
+                }
+                int neighbour = cell + Map.ROW_OFFSETS[d] * columns + Map.COL_OFFSETS[d];
+                if (distance[neighbour] == UNREACHABLE && map.canEnter(neighbour)) {
+                    distance[neighbour] = furthest + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        // the int[] is only kept if some distance doesn't fit in a char
+        if (furthest >= CHAR_UNREACHABLE) {
+            return new ExitField(rows, columns, null, distance);
+        }
+        char[] charDistances = new char[cellCount];
+        for (int index = 0; index < cellCount; index++) {
+            charDistances[index] = distance[index] == UNREACHABLE ? CHAR_UNREACHABLE : (char) distance[index];
+        }
+        return new ExitField(rows, columns, charDistances, null);
+    }
+
+    // Returns the distance from this cell to the closest exit, or UNREACHABLE
+    public int getDistance(int index) {
+        if (this.charDistances != null) {
+            char distance = this.charDistances[index];
+            return distance == CHAR_UNREACHABLE ? UNREACHABLE : distance;
+        }
+        return this.intDistances[index];
+    }
+
+    // Returns the neighbouring cell to move to from this cell to get closer to the closest exit,
+    // or -1 if no exit can be reached. The cell itself is never treated as the exit
+    public int getNextStep(int index) {
+        int row = index / this.columns;
+        int col = index % this.columns;
+        int nextStep = -1;
+        int closest = UNREACHABLE;
+        for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+            int neighbourRow = row + Map.ROW_OFFSETS[d];
+            int neighbourCol = col + Map.COL_OFFSETS[d];
+            if (neighbourRow < 0 || neighbourRow >= this.rows || neighbourCol < 0 || neighbourCol >= this.columns) {
+                continue;
+            }
+            // walls are UNREACHABLE, so they are never picked
+            int neighbour = index + Map.ROW_OFFSETS[d] * this.columns + Map.COL_OFFSETS[d];
+            int distance = this.getDistance(neighbour);
+            if (distance < closest) {
+                closest = distance;
+                nextStep = neighbour;
+            }
+        }
+        return nextStep;
+    }
+
+    // Reads the field from the sidecar file, or returns null if it doesn't exist, wasn't built from the terrain
+    // of the map as it is now or can't be read, so that it's built again instead
+    private static ExitField load(Map map, File sidecar, long terrainHash) {
+
+        if (!sidecar.isFile()) {
+            return null;
+        }
+
+        int cellCount = map.getCellCount();
+        try (FileChannel channel = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int headerLength = MAGIC.length + 1 + 8 + 4 + 1;
+            if (buffer.limit() < headerLength) {
+                return null;
+            }
+            for (byte magic : MAGIC) {
+                if (buffer.get() != magic) {
+                    return null;
+                }
+            }
+            if (buffer.get() != VERSION || buffer.getLong() != terrainHash || buffer.getInt() != cellCount) {
+                return null;
+            }
+
+            byte width = buffer.get();
+            if ((width != 2 && width != 4) || buffer.remaining() != (long) cellCount * width) {
+                return null;
+            }
+            // copy the distances out of the mapped file in bulk
+            if (width == 2) {
+                char[] charDistances = new char[cellCount];
+                buffer.asCharBuffer().get(charDistances);
+                return new ExitField(map.getRows(), map.getColumns(), charDistances, null);
+            }
+            int[] intDistances = new int[cellCount];
+            buffer.asIntBuffer().get(intDistances);
+            return new ExitField(map.getRows(), map.getColumns(), null, intDistances);
+
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Writes the field to a temporary file that is then renamed to the sidecar file, so that a load never sees a
+    // half written field. Failing to write it isn't fatal, the field is just built again next time
+    private void save(File sidecar, long terrainHash) {
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(sidecar.getParentFile().toPath(), sidecar.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary), 1 << 16))) {
+                out.write(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(terrainHash);
+                if (this.charDistances != null) {
+                    out.writeInt(this.charDistances.length);
+                    out.writeByte(2);
+                    for (char distance : this.charDistances) {
+                        out.writeChar(distance);
+                    }
+                } else {
+                    out.writeInt(this.intDistances.length);
+                    out.writeByte(4);
+                    for (int distance : this.intDistances) {
+                        out.writeInt(distance);
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save the exit distances of the map to " + sidecar + ".");
+            if (temporary != null) {
+                temporary.toFile().delete();
+            }
+        }
+    }
+}
@@ -1,17 +1,11 @@
 public class ExitTile extends Tile {
 
-    char symbol = 'E';
-
-    public ExitTile(int row, int col) {
-        super(row, col);
+    public ExitTile(Map map, int row, int col) {
+        super(map, row, col);
     }
 
     boolean canEnter() {
         return true;
     }
 
-    public void printTile() {
-        System.out.print(this.symbol);
-    }
-
 }
\ No newline at end of file
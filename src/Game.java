@@ -1,3 +1,5 @@
+import java.nio.*;
+
 public class Game {
 
     private final Human humanPlayer;
@@ -11,42 +13,78 @@ public class Game {
     private final UserInput userInput;
     // player chooses to quit the game
     private boolean hasQuit = false;
+    // number of turns played so far by both players
+    private int turns = 0;
+    // the game stops after this many turns, zero means no limit
+    private int maxTurns = 0;
+    // how the game ended, null while it's still being played
+    private GameResult result;
+    // state of the map's random number generator before the players spawned, which plays the game again
+    private final long seed;
+    // records every turn when set, null otherwise
+    private ReplayLog replayLog;
 
     // Throughout the program, I use System.out for user interaction including corrective feedback on user input,
     // System.err is used for unexpected errors which are more relevant for debugging.
+    // Everything the game reports goes to its own sink as typed events (see OutputSink), which prints to
+    // System.out unless the game is headless, so that many games can be played at once without sharing
+    // the console, and games nobody watches don't format anything.
+    private final OutputSink out;
 
     public Game(Map map, UserInput userInput) {
 
         this.map = map;
         this.userInput = userInput;
+        this.out = new ConsoleSink(System.out);
+        this.seed = map.getRandom().getState();
 
         // creates human player, passes access to user input stream
-        this.humanPlayer = new Human(map, this, userInput);
+        this.humanPlayer = new Human(map, this, userInput, true);
 
         // prints choice and prompts user for difficulty
         this.chooseDifficulty();
 
         // creates the bot based on difficulty selection
-        if (this.difficulty.equals("Normal")) {
-            // This bot is only smart, it either looks, chases objectives based on its last look
-            // or moves randomly within its last look
-            this.botPlayer = new SmartBot(map, this);
-        } else if (this.difficulty.equals("Impossible")) {
-            // This bot can see the entire map without looking
-            // and updates its decision every turn based on all available information
-            this.botPlayer = new OmniscientBot(map, this);
-        }
+        this.createBot(true);
 
         // human player plays first
         this.currentPlayer = this.humanPlayer;
 
-        System.out.println("Welcome to the Dungeon of Doom!");
+        this.out.message("Welcome to the Dungeon of Doom!");
+    }
+
+    // Headless game: the human's commands come from the command source (e.g. AutoPilot),
+    // the difficulty is given instead of asking the user and everything is reported to out
+    public Game(Map map, CommandSource commandSource, String difficulty, OutputSink out) {
+        this(map, commandSource, difficulty, out, null);
+    }
+
+    // Headless game in the state of the snapshot if one is given (see fork). Its players don't spawn,
+    // they are put where the snapshot has them, so that nothing fails on a map with no tile left to spawn on
+    Game(Map map, CommandSource commandSource, String difficulty, OutputSink out, GameSnapshot snapshot) {
+
+        this.map = map;
+        this.userInput = null;
+        this.out = out;
+        this.seed = map.getRandom().getState();
+        this.humanPlayer = new Human(map, this, commandSource, snapshot == null);
+        this.difficulty = difficulty;
+        this.createBot(snapshot == null);
+
+        // human player plays first
+        this.currentPlayer = this.humanPlayer;
+        if (snapshot != null) {
+            this.restore(snapshot);
+        }
     }
 
+    // Usage: java -cp out Game [replay file]
+    // the game is recorded to the replay file if one is given (see Replay)
     public static void main(String[] args) {
 
         // opens user input stream
         UserInput userInput = new UserInput();
+        ReplayLog replayLog = args.length > 0 ? ReplayLog.create(args[0]) : null;
 
         try {
             // loads valid maps
@@ -59,19 +97,13 @@ public class Game {
             Game game = new Game(map, userInput);
             // describe game difficulty and map choice
             game.describeDifficulty();
-            map.describeMap();
+            map.describeMap(game.getOutput());
+            game.setReplayLog(replayLog);
 
             // Game starts
-
-            // continue to play while the game is not over
-            while (!game.isGameOver()) {
-                game.currentPlayer.playTurn();
-                game.switchPlayer();
-                // checks if there is enough gold for both players to win by only looting
-                if (!game.existsEnoughGoldToWin()) {
-                    // if there is not, spawn gold at a random point in the map
-                    map.spawnRandomGold();
-                }
+            game.play();
+            if (replayLog != null) {
+                replayLog.close();
             }
 
             // cleanup UserInput resource
@@ -84,6 +116,11 @@ public class Game {
             // globally catch any errors and print to stderr
             e.printStackTrace();
 
+            // keep the turns played so far
+            if (replayLog != null) {
+                replayLog.close();
+            }
+
             // cleanup UserInput resource
             userInput.closeStream();
             // Unsuccessful termination
@@ -91,6 +128,62 @@ public class Game {
         }
     }
 
+    // plays turns until the game is over and returns how it ended
+    public GameResult play() {
+
+        ReplayLog replayLog = this.replayLog;
+        if (replayLog != null) {
+            replayLog.recordGameStart(this.seed, this.map.getHash(), this.difficulty, this.maxTurns,
+                    this.indexOf(this.humanPlayer), this.indexOf(this.botPlayer));
+        }
+
+        // continue to play while the game is not over
+        while (!this.isGameOver()) {
+            this.currentPlayer.setLastCommand(ReplayLog.NOTHING);
+            this.currentPlayer.playTurn();
+            if (replayLog != null) {
+                replayLog.recordTurn(this.currentPlayer == this.botPlayer, this.currentPlayer.getLastCommand(),
+                        this.indexOf(this.currentPlayer));
+            }
+            this.switchPlayer();
+            this.turns++;
+            // checks if there is enough gold for both players to win by only looting
+            if (!this.existsEnoughGoldToWin()) {
+                // if there is not, spawn gold at a random point in the map
+                int index = this.map.spawnRandomGold();
+                if (replayLog != null) {
+                    replayLog.recordGoldSpawned(index);
+                }
+            }
+        }
+
+        if (replayLog != null) {
+            replayLog.recordGameEnd(this.result, this.turns);
+        }
+        return this.result;
+    }
+
+    // index of the cell the player is on
+    private int indexOf(Player player) {
+        Tile tile = player.getTile();
+        return this.map.getIndex(tile.getRow(), tile.getCol());
+    }
+
+    // creates the bot based on the difficulty, spawning it if spawn is set
+    private void createBot(boolean spawn) {
+        if (this.difficulty.equals("Normal")) {
+            // This bot is only smart, it either looks, chases objectives based on its last look
+            // or moves randomly within its last look
+            this.botPlayer = new SmartBot(this.map, this, spawn);
+        } else if (this.difficulty.equals("Impossible")) {
+            // This bot can see the entire map without looking
+            // and updates its decision every turn based on all available information
+            this.botPlayer = new OmniscientBot(this.map, this, spawn);
+        } else {
+            throw new RuntimeException("Unknown difficulty " + this.difficulty + ".");
+        }
+    }
+
     // switches current player between bot and human
     private void switchPlayer() {
         if (this.currentPlayer == this.humanPlayer) {
@@ -104,6 +197,7 @@ public class Game {
     // 1. (bot or human) player inputs QUIT,
     // WIN only when human player on exit tile with enough gold
     // 2. human touches the bot LOSE
+    // 3. headless games reach their turn limit
 
     public void quitGame() {
         // player inputted quit
@@ -115,7 +209,8 @@ public class Game {
 
         // 1. the bot and human share the same tile LOSE
         if (isHumanTouchingBot()) {
-            System.out.println("LOSE. The bot caught you!");
+            this.result = GameResult.CAUGHT;
+            this.out.gameOver(this.result);
             return true;
         }
 
@@ -129,18 +224,28 @@ public class Game {
 
             // The human is on the exit tile with enough gold WIN
             if ((h.getTile() instanceof ExitTile) && (h.getGold() >= goldToWin)) {
-                System.out.println("WIN. You escaped the Dungeon of Doom!");
+                this.result = GameResult.WIN;
+                this.out.gameOver(this.result);
                 return true;
             }
 
             // The bot is on the exit tile with enough gold LOSE
             if ((b.getTile() instanceof ExitTile) && (b.getGold() >= goldToWin)) {
-                System.out.println("LOSE. The bot collected enough gold and won!");
+                this.result = GameResult.BOT_WON;
+                this.out.gameOver(this.result);
                 return true;
             }
 
             // A player called quit and none of the above conditions match
-            System.out.println("LOSE. You quit the game early, better luck next time!");
+            this.result = GameResult.QUIT;
+            this.out.gameOver(this.result);
+            return true;
+        }
+
+        // 3. Headless games stop after their turn limit so that two players who never finish can't loop forever
+        if (this.maxTurns > 0 && this.turns >= this.maxTurns) {
+            this.result = GameResult.TURN_LIMIT;
+            this.out.gameOver(this.result);
             return true;
         }
 
@@ -157,8 +262,8 @@ public class Game {
         int botGold = this.botPlayer.getGold();
         int humanGold = this.humanPlayer.getGold();
         Map map = this.map;
-        // Both players must be able to choose to loot only and win
-        return map.getGoldCount() + Math.min(botGold, humanGold) >= map.getGoldWinCondition();
+        // Both players must be able to choose to loot only and win, so gold they can't reach doesn't count
+        return map.getReachableGoldCount() + Math.min(botGold, humanGold) >= map.getGoldWinCondition();
     }
 
     // prints difficulties and sets difficulty based on user selection
@@ -169,18 +274,18 @@ public class Game {
         // prints a one-indexed list of difficulty choices
         for (int index = 0; index < difficulties.length; index++) {
 
-            System.out.printf("%d. %s", index + 1, difficulties[index]);
+            String choice = (index + 1) + ". " + difficulties[index];
 
             // print new line
             if (difficulties[index].equals("Impossible")) {
-                System.out.println(" - This difficulty is just for demonstration, since this bot cheats by seeing without looking.");
+                this.out.message(choice + " - This difficulty is just for demonstration, since this bot cheats by seeing without looking.");
             } else {
-                System.out.println();
+                this.out.message(choice);
             }
         }
 
         // prompts user for difficulty selection
-        System.out.print("Select a difficulty by entering the index: ");
+        this.out.prompt("Select a difficulty by entering the index: ");
 
         // delegate all responsibility to UserInput regarding handling user input.
         // getIndexWithinRange will repeatedly prompt the user for a valid index
@@ -191,6 +296,74 @@ public class Game {
     }
 
     private void describeDifficulty() {
-        System.out.println("The chosen difficulty is: " + this.difficulty + ".");
+        this.out.message("The chosen difficulty is: " + this.difficulty + ".");
+    }
+
+    // getters/setters
+
+    // where everything the game reports goes
+    public OutputSink getOutput() {
+        return this.out;
+    }
+
+    public Human getHuman() {
+        return this.humanPlayer;
+    }
+
+    public Bot getBot() {
+        return this.botPlayer;
+    }
+
+    // number of turns played so far by both players
+    public int getTurns() {
+        return this.turns;
+    }
+
+    // stops the game after this many turns, zero means no limit
+    public void setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    // the complete state of the game between two turns (see GameSnapshot)
+    public GameSnapshot snapshot() {
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.HEADER_LENGTH + this.map.getStateLength()
+                + this.humanPlayer.getStateLength() + this.botPlayer.getStateLength());
+        buffer.put(GameSnapshot.MAGIC).put(GameSnapshot.VERSION)
+                .put((byte) (this.difficulty.equals("Normal") ? 0 : 1)).putInt(this.turns).putInt(this.maxTurns)
+                .put((byte) (this.hasQuit ? 1 : 0)).put((byte) (this.currentPlayer == this.botPlayer ? 1 : 0));
+        this.map.writeState(buffer);
+        this.humanPlayer.writeState(buffer);
+        this.botPlayer.writeState(buffer);
+        return new GameSnapshot(buffer.array());
+    }
+
+    // Goes back to the state of the snapshot, which must be of a game on this map against the same bot.
+    // Only what changed since is written again, so rolling back a few turns takes microseconds
+    public void restore(GameSnapshot snapshot) {
+        ByteBuffer buffer = snapshot.open();
+        if (buffer.get() != (byte) (this.difficulty.equals("Normal") ? 0 : 1)) {
+            throw new RuntimeException("The snapshot is of a game against another bot than " + this.difficulty + ".");
+        }
+        this.turns = buffer.getInt();
+        this.maxTurns = buffer.getInt();
+        this.hasQuit = buffer.get() == 1;
+        this.currentPlayer = buffer.get() == 1 ? this.botPlayer : this.humanPlayer;
+        this.result = null;
+        // the cells first, the players then find themselves on their tiles
+        this.map.readState(buffer);
+        this.humanPlayer.readState(buffer);
+        this.botPlayer.readState(buffer);
+    }
+
+    // A new headless game in the same state as this one, on its own copy of the map, which clones the packed
+    // cells instead of reading the map file again. The human's commands come from the command source
+    public Game fork(CommandSource commandSource, OutputSink out) {
+        // the copy already has the players on their cells, so they are created without spawning
+        return new Game(new Map(this.map, new GameRandom()), commandSource, this.difficulty, out, this.snapshot());
+    }
+
+    // records the game to the replay log when it's played, null to not record it
+    public void setReplayLog(ReplayLog replayLog) {
+        this.replayLog = replayLog;
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+import java.util.concurrent.*;
+
+public class GameRandom {
+
+    // The one source of randomness of a game: where gold and players spawn (Map, Player) and how the SmartBot
+    // wanders (split off the map's generator, see split). A game played on a map copy seeded the same
+    // way with the same commands is played the same way every time.
+    // This is the SplitMix64 generator, the same algorithm as java.util.SplittableRandom: the state advances
+    // by a fixed odd gamma and every value is a mix of it, so a generator is a single long, costs a few
+    // multiplications per value and split hands out independent streams without any shared atomic seed.
+    // SplittableRandom itself isn't used because its state can't be read back, which snapshots of a
+    // game need to be able to save and restore (see GameSnapshot).
+
+    // gamma of generators created from a seed, an odd approximation of 2^64 / the golden ratio
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+    // added to the state for every value, always odd
+    private long gamma;
+
+    // a generator seeded differently every time, for games that don't need to be reproduced
+    public GameRandom() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    // the same seed always generates the same values
+    public GameRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private GameRandom(long state, long gamma) {
+        this.state = state;
+        this.gamma = gamma;
+    }
+
+    // Returns a new generator whose values are independent of this one's. Splitting advances this
+    // generator, so the streams split off a seeded generator are the same every time
+    public GameRandom split() {
+        return new GameRandom(mix64(this.nextState()), mixGamma(this.nextState()));
+    }
+
+    public long nextLong() {
+        return mix64(this.nextState());
+    }
+
+    // a value between 0 (inclusive) and bound (exclusive), every value equally likely
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int value = mix32(this.nextState());
+        int mask = bound - 1;
+        if ((bound & mask) == 0) {
+            // power of two, the low bits are as random as the rest
+            return value & mask;
+        }
+        // values from the incomplete last multiple of bound are rejected, so that the remainders are uniform
+        int u = value >>> 1;
+        while (u + mask - (value = u % bound) < 0) {
+            u = mix32(this.nextState()) >>> 1;
+        }
+        return value;
+    }
+
+    // The state and gamma are the whole generator, setState goes back to them and the values that followed
+    // are generated again. The gamma is the same for every generator created from a seed
+    public long getState() {
+        return this.state;
+    }
+
+    public long getGamma() {
+        return this.gamma;
+    }
+
+    public void setState(long state, long gamma) {
+        if ((gamma & 1) == 0) {
+            throw new IllegalArgumentException("gamma must be odd");
+        }
+        this.state = state;
+        this.gamma = gamma;
+    }
+
+    private long nextState() {
+        return this.state += this.gamma;
+    }
+
+    // the finalizers of SplitMix64, spreading every bit of the state over the value
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    // an odd gamma for a split generator, with enough bit transitions that its states don't look alike
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int transitions = Long.bitCount(z ^ (z >>> 1));
+        return transitions < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,13 @@
+// How a game ended, from the human player's point of view
+public enum GameResult {
+    // the human quit on an exit tile with enough gold
+    WIN,
+    // the bot caught the human
+    CAUGHT,
+    // the bot quit on an exit tile with enough gold
+    BOT_WON,
+    // a player quit without being able to win
+    QUIT,
+    // the game was stopped after reaching its turn limit
+    TURN_LIMIT
+}
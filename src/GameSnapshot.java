@@ -0,0 +1,73 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+
+public class GameSnapshot {
+
+    // The complete state of a game at the start of a turn, in a compact array of bytes, so that a game can be
+    // forked for a what-if search and rolled back again (see Game.snapshot, Game.restore and Game.fork), or
+    // saved to a file and resumed later. Everything that is derived from the cells (distance fields, the
+    // component index, the OmniscientBot's cached path) isn't saved, it's updated from the cells that change
+    // on restore. The spawn cells are the exception: their order decides where random gold spawns, and
+    // it depends on the history of the game. All numbers are big-endian:
+    //  magic          4 bytes   'D' 'O' 'D' 'S'
+    //  version        1 byte    VERSION
+    //  game           difficulty (1 byte, 0 Normal or 1 Impossible), turns played (int), turn limit (int),
+    //                 whether a player quit (1 byte) and whose turn it is (1 byte, 0 human or 1 bot)
+    //  map            rows (int), columns (int), gold count (int), state and gamma of the random number
+    //                 generator (2 longs), the packed cells as Map stores them (1 byte per tile), then
+    //                 the number of cells gold can spawn on (int), the number of cells players can spawn on
+    //                 (int) and those cells in the order of the SpawnIndex (ints)
+    //  human          index of its cell (int), gold (int)
+    //  bot            index of its cell (int), gold (int), then for a SmartBot the state and gamma of its random
+    //                 number generator (2 longs), turns since its last look (int), its objective (1 byte,
+    //                 -1 for none), the length of its path (int), the cells of the path from where it looked
+    //                 (ints) and how far along the path it has moved (int)
+
+    static final byte[] MAGIC = {'D', 'O', 'D', 'S'};
+    static final byte VERSION = 1;
+
+    // bytes of the magic, version and game state
+    static final int HEADER_LENGTH = 4 + 1 + 1 + 4 + 4 + 1 + 1;
+
+    private final byte[] bytes;
+
+    // a snapshot of the bytes written by Game.snapshot, e.g. read back from a file
+    public GameSnapshot(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static GameSnapshot read(String filePath) {
+        try {
+            return new GameSnapshot(Files.readAllBytes(Paths.get(filePath)));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the snapshot file " + filePath + ".");
+        }
+    }
+
+    public void write(String filePath) {
+        try {
+            Files.write(Paths.get(filePath), this.bytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write the snapshot file " + filePath + ".");
+        }
+    }
+
+    public byte[] getBytes() {
+        return this.bytes;
+    }
+
+    // the bytes to read the state from, after the magic and version, which are checked
+    ByteBuffer open() {
+        ByteBuffer buffer = ByteBuffer.wrap(this.bytes);
+        for (byte magic : MAGIC) {
+            if (!buffer.hasRemaining() || buffer.get() != magic) {
+                throw new RuntimeException("Not a snapshot of a game.");
+            }
+        }
+        if (!buffer.hasRemaining() || buffer.get() != VERSION) {
+            throw new RuntimeException("The snapshot was taken by another version of the game.");
+        }
+        return buffer;
+    }
+}
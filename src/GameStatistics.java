@@ -0,0 +1,73 @@
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+public class GameStatistics {
+
+    // Collects how simulated games ended. Games running on different threads record their results
+    // at the same time, so every counter is lock-free: LongAdder spreads contended increments over
+    // separate cells and LongAccumulator does the same for the minimum and maximum.
+
+    // number of games that ended with each result
+    private final LongAdder[] resultCounts = new LongAdder[GameResult.values().length];
+    private final LongAdder gamesPlayed = new LongAdder();
+    private final LongAdder totalTurns = new LongAdder();
+    private final LongAccumulator minTurns = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxTurns = new LongAccumulator(Math::max, 0);
+    // turns where the OmniscientBot's path cache decided the chase, and turns it had to search
+    private final LongAdder pathCacheHits = new LongAdder();
+    private final LongAdder pathCacheMisses = new LongAdder();
+
+    public GameStatistics() {
+        for (int i = 0; i < this.resultCounts.length; i++) {
+            this.resultCounts[i] = new LongAdder();
+        }
+    }
+
+    // records a finished game, safe to call from any thread
+    public void record(GameResult result, int turns) {
+        this.resultCounts[result.ordinal()].increment();
+        this.gamesPlayed.increment();
+        this.totalTurns.add(turns);
+        this.minTurns.accumulate(turns);
+        this.maxTurns.accumulate(turns);
+    }
+
+    // records the path cache of a finished game's OmniscientBot, safe to call from any thread
+    public void recordPathCache(long hits, long misses) {
+        this.pathCacheHits.add(hits);
+        this.pathCacheMisses.add(misses);
+    }
+
+    // number of games recorded with this result
+    public long getCount(GameResult result) {
+        return this.resultCounts[result.ordinal()].sum();
+    }
+
+    public long getGamesPlayed() {
+        return this.gamesPlayed.sum();
+    }
+
+    // prints the win/loss counts and turn statistics of all games recorded
+    public void print(PrintStream out) {
+
+        long games = this.getGamesPlayed();
+        out.println("Games played: " + games);
+        if (games == 0) {
+            return;
+        }
+
+        for (GameResult result : GameResult.values()) {
+            long count = this.getCount(result);
+            out.printf("%s: %d (%.1f%%)\n", result, count, 100.0 * count / games);
+        }
+
+        out.printf("Turns: min %d, average %.1f, max %d\n",
+                this.minTurns.get(), (double) this.totalTurns.sum() / games, this.maxTurns.get());
+
+        long lookups = this.pathCacheHits.sum() + this.pathCacheMisses.sum();
+        if (lookups > 0) {
+            out.printf("Path cache: %d hits of %d chase decisions (%.1f%%)\n",
+                    this.pathCacheHits.sum(), lookups, 100.0 * this.pathCacheHits.sum() / lookups);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.*;
+
+public class GoalIndex implements MapListener {
+
+    // Spatial index of the tiles with gold on them and of the exit tiles, so that the closest ones to a position
+    // by Manhattan distance can be found without searching the map. The grid is split into square buckets of
+    // BUCKET_SIZE x BUCKET_SIZE tiles, each holding the gold and exit cells inside it, and a query only visits
+    // the rings of buckets around the position until no closer tile can be left in the next ring.
+    // A path can never be shorter than the Manhattan distance, so these distances are lower bounds that
+    // PathFinder uses to steer and stop its searches.
+
+    // what the index holds
+    static final int GOLD = 0;
+    static final int EXIT = 1;
+
+    // buckets are 16x16 tiles, so row >> BUCKET_SHIFT is the bucket row
+    private static final int BUCKET_SHIFT = 4;
+    private static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+
+    private final Map map;
+    private final int bucketRows;
+    private final int bucketColumns;
+    // cells of each kind in each bucket, indexed [kind][bucket], grown as needed
+    private final int[][][] bucketCells = new int[2][][];
+    private final int[][] bucketSizes = new int[2][];
+    // number of cells of each kind on the map
+    private final int[] counts = new int[2];
+
+    public GoalIndex(Map map) {
+        this.map = map;
+        this.bucketRows = (map.getRows() + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        this.bucketColumns = (map.getColumns() + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        int bucketCount = this.bucketRows * this.bucketColumns;
+        for (int kind = GOLD; kind <= EXIT; kind++) {
+            this.bucketCells[kind] = new int[bucketCount][];
+            this.bucketSizes[kind] = new int[bucketCount];
+        }
+        for (int index = 0; index < map.getCellCount(); index++) {
+            byte cell = map.getCell(index);
+            if ((cell & Map.GOLD) != 0) {
+                this.add(GOLD, index);
+            }
+            if ((cell & Map.TERRAIN_MASK) == Map.EXIT) {
+                this.add(EXIT, index);
+            }
+        }
+    }
+
+    // keeps the gold buckets in sync when gold is added or removed, exits never change
+    public void cellChanged(int index, byte previousCell, byte cell) {
+        boolean hadGold = (previousCell & Map.GOLD) != 0;
+        boolean hasGold = (cell & Map.GOLD) != 0;
+        if (hadGold != hasGold) {
+            if (hasGold) {
+                this.add(GOLD, index);
+            } else {
+                this.remove(GOLD, index);
+            }
+        }
+    }
+
+    // number of cells of this kind (GOLD or EXIT) on the map
+    public int getCount(int kind) {
+        return this.counts[kind];
+    }
+
+    // Finds up to k cells of this kind (GOLD or EXIT) closest to this position (at row, col) by Manhattan
+    // distance. Their indexes and distances are written to nearest and distances, closest first, and the
+    // number found is returned. Every cell of this kind that wasn't returned is at least as far as the last one
+    public int findNearest(int kind, int row, int col, int k, int[] nearest, int[] distances) {
+
+        int found = 0;
+        int centerRow = row >> BUCKET_SHIFT;
+        int centerCol = col >> BUCKET_SHIFT;
+        int maxRing = Math.max(Math.max(centerRow, this.bucketRows - 1 - centerRow),
+                Math.max(centerCol, this.bucketColumns - 1 - centerCol));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+
+            // every tile in this ring of buckets is at least this far away,
+            // so once k closer cells have been found the search can stop
+            int ringDistance = Math.max(0, (ring - 1) * BUCKET_SIZE + 1);
+            if (found == k && distances[k - 1] <= ringDistance) {
+                break;
+            }
+
+            // visit the buckets on the border of the square of buckets of this radius
+            for (int br = centerRow - ring; br <= centerRow + ring; br++) {
+                if (br < 0 || br >= this.bucketRows) {
+                    continue;
+                }
+                boolean borderRow = br == centerRow - ring || br == centerRow + ring;
+                int step = borderRow ? 1 : 2 * ring;
+                for (int bc = centerCol - ring; bc <= centerCol + ring; bc += Math.max(step, 1)) {
+                    if (bc >= 0 && bc < this.bucketColumns) {
+                        found = this.collect(kind, br * this.bucketColumns + bc, row, col, k, found,
+                                nearest, distances);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Inserts the cells of the bucket into the k closest found so far, kept sorted by distance
+    private int collect(int kind, int bucket, int row, int col, int k, int found, int[] nearest, int[] distances) {
+        int[] cells = this.bucketCells[kind][bucket];
+        int size = this.bucketSizes[kind][bucket];
+        for (int i = 0; i < size; i++) {
+            int index = cells[i];
+            int distance = Math.abs(this.map.getRowOf(index) - row) + Math.abs(this.map.getColOf(index) - col);
+            if (found == k && distance >= distances[k - 1]) {
+                continue;
+            }
+            // insertion sort from the end, dropping the furthest when k have been found
+            int position = found < k ? found++ : k - 1;
+            while (position > 0 && distances[position - 1] > distance) {
+                nearest[position] = nearest[position - 1];
+                distances[position] = distances[position - 1];
+                position--;
+            }
+            nearest[position] = index;
+            distances[position] = distance;
+        }
+        return found;
+    }
+
+    // bucket of the cell at this index
+    private int getBucket(int index) {
+        return (this.map.getRowOf(index) >> BUCKET_SHIFT) * this.bucketColumns
+                + (this.map.getColOf(index) >> BUCKET_SHIFT);
+    }
+
+    private void add(int kind, int index) {
+        int bucket = this.getBucket(index);
+        int[] cells = this.bucketCells[kind][bucket];
+        int size = this.bucketSizes[kind][bucket];
+        if (cells == null) {
+            cells = new int[4];
+        } else if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+        }
+        cells[size] = index;
+        this.bucketCells[kind][bucket] = cells;
+        this.bucketSizes[kind][bucket] = size + 1;
+        this.counts[kind]++;
+    }
+
+    // a bucket holds at most BUCKET_SIZE * BUCKET_SIZE cells, so it's searched for the cell
+    // which is then swapped with the last cell of the bucket
+    private void remove(int kind, int index) {
+        int bucket = this.getBucket(index);
+        int[] cells = this.bucketCells[kind][bucket];
+        int size = this.bucketSizes[kind][bucket];
+        for (int i = 0; i < size; i++) {
+            if (cells[i] == index) {
+                cells[i] = cells[size - 1];
+                this.bucketSizes[kind][bucket] = size - 1;
+                this.counts[kind]--;
+                return;
+            }
+        }
+    }
+}
@@ -1,29 +1,31 @@
 public class Human extends Player {
 
-    // stores access to UserInput implementation to read input from the user
-    private final UserInput userInput;
+    // stores access to where the commands come from, usually UserInput to read input from the user
+    private final CommandSource commandSource;
 
-    public Human(Map mp, Game g, UserInput userInput) {
-        super(mp, g);
-        this.userInput = userInput;
+    public Human(Map mp, Game g, CommandSource commandSource, boolean spawn) {
+        super(mp, g, spawn);
+        this.commandSource = commandSource;
     }
 
     public void playTurn() {
 
-        System.out.print("Your turn: ");
+        this.getOutput().humanTurn();
 
-        // delegate all responsibility to UserInput regarding handling user input
-        String lowerCaseLine = this.userInput.readLowerCaseString();
+        // delegate all responsibility to the CommandSource (e.g. UserInput) regarding handling input
+        String lowerCaseLine = this.commandSource.nextCommand(this);
 
         if (lowerCaseLine.equals("hello")) {
 
             // prints gold win condition of the map
-            System.out.println("Gold to win: " + this.getMap().getGoldWinCondition());
+            this.setLastCommand(ReplayLog.HELLO);
+            this.getOutput().goldToWin(this.getMap().getGoldWinCondition());
 
         } else if (lowerCaseLine.equals("gold")) {
 
             // prints gold owned on this turn
-            System.out.println("Gold owned: " + this.getGold());
+            this.setLastCommand(ReplayLog.GOLD);
+            this.getOutput().goldOwned(this.getGold());
 
         } else if (lowerCaseLine.equals("pickup")) {
 
@@ -48,7 +50,8 @@ public class Human extends Player {
         } else {
 
             // does not match any of the known commands, turn is skipped
-            System.out.println("Fail, not a valid command.");
+            this.setLastCommand(ReplayLog.INVALID);
+            this.getOutput().invalidCommand();
 
         }
     }
@@ -84,7 +87,8 @@ public class Human extends Player {
             col--;
         } else {
             // last character was not any of 'n' 'e' 's' 'w'
-            System.out.println("Fail, not a valid command.");
+            this.setLastCommand(ReplayLog.INVALID);
+            this.getOutput().invalidCommand();
             return;
         }
 
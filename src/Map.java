@@ -1,233 +1,380 @@
 import java.io.*;
+import java.nio.*;
 import java.util.*;
 
 public class Map {
 
-    // 2D grid composed of Tile objects
-    final private ArrayList<ArrayList<Tile>> grid = new ArrayList<>();
+    // Each cell of the grid is packed into a single byte, indexed by row * columns + col.
+    // Bits 0-1 store the terrain type and the remaining bits store what is on top of the tile.
+    // Tile objects are only created as thin views over a cell when they are needed (see getTile)
+    static final byte EMPTY = 0;
+    static final byte WALL = 1;
+    static final byte EXIT = 2;
+    static final byte TERRAIN_MASK = 0b11;
+    static final byte GOLD = 0b100;
+    static final byte HUMAN = 0b1000;
+    static final byte BOT = 0b10000;
+    // the four moves as offsets of row and column: right, left, down, up, the same order as Bot.directions.
+    // Shared by every search over the packed grid, index d of both arrays is one move
+    static final int[] ROW_OFFSETS = {0, 0, 1, -1};
+    static final int[] COL_OFFSETS = {1, -1, 0, 0};
+
+    // packed grid of cells
+    private byte[] cells = new byte[0];
+    // dimensions of the grid
+    private int rows;
+    private int columns;
     // the win condition of the map
     private int goldWinCondition;
     // current gold on the map
     private int goldCount;
-    // used for reading the file input stream
-    private BufferedReader br;
-    private final Random rand = new Random();
+    // used for spawning gold and players, seeded when games need to be reproducible (see GameRandom)
+    private final GameRandom rand;
     private String mapName;
+    // engine that chases the human, set by the map file (see MapFileReader)
+    private PathSearch pathSearch;
+    // breadth-first search engine shared by all bots on this map
+    private PathFinder pathFinder;
+    // distance field to the bots' objectives, updated incrementally as cells change
+    private ObjectiveField objectiveField;
+    // cells where gold and players can spawn, updated as cells change
+    private SpawnIndex spawnIndex;
+    // gold and exit cells bucketed by position, updated as cells change
+    private GoalIndex goalIndex;
+    // distance to the closest exit of every cell, loaded with the map or built when first needed
+    private ExitField exitField;
+    // connected regions of the map and what is in each
+    private ComponentIndex componentIndex;
+    // clusters of the map for hierarchical path finding
+    private ClusterGraph clusterGraph;
+    // prints views of the grid
+    private MapRenderer renderer;
+    // told about every change to the cells of the grid
+    private final ArrayList<MapListener> listeners = new ArrayList<>();
 
     // reads file to create map when instantiated
     public Map(String filePath) {
-        // Since the program is quite small, I think it's acceptable to couple file reading and Map
-        // instantiation here
-        this.openFileStream(filePath);
-        this.initialiseMap();
-        this.closeFileStream();
-    }
-
-    // Attempts to open file reader stream
-    private void openFileStream(String filePath) {
-        try {
-            this.br = new BufferedReader(new FileReader(filePath));
-            // shouldn't throw unless file was changed since MapLoader checked
-        } catch (FileNotFoundException e) {
-            // Cannot continue without reading the map, terminate by throwing a runtime exception
-            throw new RuntimeException("There was an error reading the map file.");
-        }
+        this(filePath, false);
     }
 
-    // Attempts to close file reader stream
-    private void closeFileStream() {
-        try {
-            this.br.close();
-        } catch (IOException e) {
-            System.err.println("There was an error closing the file reader stream.");
-        }
+    // When saveExitField is true the exit distances are saved next to the map file the first time it's loaded,
+    // which the game does for the maps it's played on. Otherwise distances already saved there are used,
+    // but nothing is written next to the map file
+    public Map(String filePath, boolean saveExitField) {
+        this.rand = new GameRandom();
+        // The file is memory-mapped and parsed straight into packed cells by MapFileReader
+        MapFileReader reader = new MapFileReader(filePath);
+        this.mapName = reader.getMapName();
+        this.goldWinCondition = reader.getGoldWinCondition();
+        this.goldCount = reader.getGoldCount();
+        this.rows = reader.getRows();
+        this.columns = reader.getColumns();
+        this.cells = reader.getCells();
+        this.pathSearch = reader.getPathSearch();
+        // labelled straight away so that nothing spawns where it can't be reached
+        this.componentIndex = new ComponentIndex(this);
+        this.addListener(this.componentIndex);
+        // read from next to the map file if it was saved there, otherwise built the first time it's needed
+        this.exitField = saveExitField ? ExitField.loadOrBuild(this, filePath) : ExitField.load(this, filePath);
+    }
+
+    // Copies the map as it is now, so that independent games can be played on it without reading the file again.
+    // The copy has its own random number generator, e.g. seeded for reproducible simulations
+    public Map(Map map, GameRandom rand) {
+        this.rand = rand;
+        this.mapName = map.mapName;
+        this.goldWinCondition = map.goldWinCondition;
+        this.goldCount = map.goldCount;
+        this.rows = map.rows;
+        this.columns = map.columns;
+        this.cells = map.cells.clone();
+        this.pathSearch = map.pathSearch;
+        // the terrain is the same, so the labels of the map are shared
+        this.componentIndex = new ComponentIndex(this, map.componentIndex);
+        this.addListener(this.componentIndex);
+        this.exitField = map.exitField;
     }
 
-    // reads the map file, composes the 2D grid with Tile objects and adds gold to tiles
-    private void initialiseMap() {
+    public void describeMap(OutputSink out) {
+        out.message("The name of the map is: " + this.getMapName() + ".");
+        out.message("To win this map you must pick up " + this.getGoldWinCondition() + " gold.");
+    }
 
-        // 1. Get the map name
-        try {
+    // prints 5 by 5 grid centered on input parameters rowCenter, colCenter,
+    // positions out of bounds of the grid are printed as walls
+    public void print5by5center(int rowCenter, int colCenter, PrintStream out) {
+        this.getRenderer().print(rowCenter - 2, colCenter - 2, 5, 5, out);
+    }
 
-            // read first line
-            String firstLine = this.br.readLine();
-            // assumes the first line will always be in the form: 'name X'
-            this.mapName = firstLine.substring(5);
+    // used for testing purposes, to show the entire 2D grid
+    public void print(PrintStream out) {
+        this.getRenderer().print(0, 0, this.rows, this.columns, out);
+    }
 
-        } catch (IOException e) {
-            System.err.println("There was an error reading the map name.");
+    // draws views of the grid into a reusable frame, created the first time the map is printed
+    public MapRenderer getRenderer() {
+        if (this.renderer == null) {
+            this.renderer = new MapRenderer(this);
         }
+        return this.renderer;
+    }
 
-        // 2. Get gold win condition
-        try {
+    // get a tile view of the cell in the grid at this position (at row, col)
+    public Tile getTile(int row, int col) {
+        if (this.isOutOfBounds(row, col)) {
+            // should be unreachable, default to returning null
+            System.err.println("You tried to get a Tile at " + row + " column " + col + " which is out of bounds.");
+            return null;
+        }
+        // The view is created on demand, all of its state is read from and written to the packed grid
+        switch (this.getTerrain(row, col)) {
+            case WALL:
+                return new WallTile(this, row, col);
+            case EXIT:
+                return new ExitTile(this, row, col);
+            default:
+                return new EmptyTile(this, row, col);
+        }
+    }
 
-            // read second line
-            String goldWinConditionString = this.br.readLine();
-            // assumes the second line will always be in the form: 'win X'
-            this.goldWinCondition = Integer.parseInt(goldWinConditionString.substring(4));
+    // is this position (at row, col) in the grid out of bounds?
+    public boolean isOutOfBounds(int row, int col) {
+        if (this.rows == 0) { // edge case with no rows
+            return false;
+        }
+        return (row < 0 || row >= this.rows || col < 0 || col >= this.columns);
+    }
 
-        } catch (IOException e) {
-            System.err.println("There was an error reading the gold win condition of the map.");
-        } catch (NumberFormatException e) {
-            System.err.println("The gold win condition must be a number.");
+    // can the player move to the tile at this position (at row, col)?
+    public boolean playerCanMoveTo(int row, int col) {
+        // grid bounds check
+        if (this.isOutOfBounds(row, col)) {
+            return false;
         }
+        // the player is free to move to all tiles unless it is a wall
+        return this.getTerrain(row, col) != WALL;
+    }
 
-        // tracks the current row index of the map
-        int rowIndex = 0;
+    // packed cell accessors used by the Tile views
 
-        String row;
+    // index of the cell at this position (at row, col) in the packed grid
+    int getIndex(int row, int col) {
+        return row * this.columns + col;
+    }
 
-        // 3. Composes grid with rows of instantiated Tile objects
-        try {
+    // terrain type of the cell at this position (at row, col), one of EMPTY, WALL or EXIT
+    byte getTerrain(int row, int col) {
+        return (byte) (this.cells[this.getIndex(row, col)] & TERRAIN_MASK);
+    }
 
-            // reads all other lines
-            while (this.br.ready()) {
+    // does the cell at this position (at row, col) have the flag (GOLD, HUMAN or BOT) set?
+    boolean hasFlag(int row, int col, byte flag) {
+        return (this.cells[this.getIndex(row, col)] & flag) != 0;
+    }
 
-                // contains the current line from the file
-                row = this.br.readLine();
+    // sets the flag (GOLD, HUMAN or BOT) on the cell at this position (at row, col)
+    void setFlag(int row, int col, byte flag) {
+        int index = this.getIndex(row, col);
+        this.setCell(index, (byte) (this.cells[index] | flag));
+    }
 
-                // stores tiles of this row
-                ArrayList<Tile> tileRow = new ArrayList<>();
+    // clears the flag (GOLD, HUMAN or BOT) on the cell at this position (at row, col)
+    void clearFlag(int row, int col, byte flag) {
+        int index = this.getIndex(row, col);
+        this.setCell(index, (byte) (this.cells[index] & ~flag));
+    }
 
-                // iterate over columns of the row
-                for (int colIndex = 0; colIndex < row.length(); colIndex++) {
+    // writes the packed cell at this index and informs the listeners if it changed
+    private void setCell(int index, byte cell) {
+        byte previousCell = this.cells[index];
+        if (previousCell == cell) {
+            return;
+        }
+        this.cells[index] = cell;
+        for (MapListener listener : this.listeners) {
+            listener.cellChanged(index, previousCell, cell);
+        }
+    }
 
-                    // character symbol
-                    char symbol = row.charAt(colIndex);
+    // bytes writeState writes
+    int getStateLength() {
+        return 4 + 4 + 4 + 8 + 8 + this.cells.length + this.getSpawnIndex().getStateLength();
+    }
 
-                    // Wall
-                    if (symbol == '#') {
+    // writes the dimensions, gold count, random number generator, packed cells and spawn cells of the map
+    // to a snapshot of its game (see GameSnapshot)
+    void writeState(ByteBuffer buffer) {
+        buffer.putInt(this.rows).putInt(this.columns).putInt(this.goldCount)
+                .putLong(this.rand.getState()).putLong(this.rand.getGamma()).put(this.cells);
+        this.getSpawnIndex().writeState(buffer);
+    }
 
-                        tileRow.add(new WallTile(rowIndex, colIndex));
+    // Goes back to the state written by writeState. Only the cells that differ are written, and through
+    // setCell like any other change so that the listeners stay up to date: going back a few turns only costs
+    // a comparison of the two grids, which Arrays.mismatch does many cells at a time.
+    // The terrain never changes during a game, so a snapshot whose walls or exits differ is of another map
+    void readState(ByteBuffer buffer) {
+        if (buffer.getInt() != this.rows || buffer.getInt() != this.columns) {
+            throw new RuntimeException("The snapshot is of a game on a map of another size than " + this.mapName + ".");
+        }
+        this.goldCount = buffer.getInt();
+        this.rand.setState(buffer.getLong(), buffer.getLong());
+
+        byte[] snapshot = buffer.array();
+        int offset = buffer.arrayOffset() + buffer.position();
+        int length = this.cells.length;
+        // checked before anything is written, so that a snapshot of another map leaves this one as it was
+        for (int index = this.nextMismatch(snapshot, offset, 0); index != -1;
+             index = this.nextMismatch(snapshot, offset, index + 1)) {
+            if (((this.cells[index] ^ snapshot[offset + index]) & TERRAIN_MASK) != 0) {
+                throw new RuntimeException("The snapshot is of a game on another map than " + this.mapName + ".");
+            }
+        }
+        for (int index = this.nextMismatch(snapshot, offset, 0); index != -1;
+             index = this.nextMismatch(snapshot, offset, index + 1)) {
+            this.setCell(index, snapshot[offset + index]);
+        }
+        buffer.position(buffer.position() + length);
+        this.getSpawnIndex().readState(buffer);
+    }
 
-                        // Empty or Gold
-                    } else if (symbol == '.' || symbol == 'G') {
+    // index of the first cell from this index on that differs from the cells of the snapshot at offset, or -1
+    private int nextMismatch(byte[] snapshot, int offset, int from) {
+        int length = this.cells.length;
+        int mismatch = Arrays.mismatch(this.cells, from, length, snapshot, offset + from, offset + length);
+        return mismatch == -1 ? -1 : from + mismatch;
+    }
 
-                        EmptyTile et = new EmptyTile(rowIndex, colIndex);
+    // registers a listener that is told about every cell that changes from now on
+    public void addListener(MapListener listener) {
+        this.listeners.add(listener);
+    }
 
-                        // I chose to have gold tiles as EmptyTiles that have gold on top of them
-                        // instead of converting between GoldTile and EmptyTile when gold is
-                        // picked up or spawned in
-                        if (symbol == 'G') {
-                            // increment gold count of the map
-                            this.incrementGoldCount();
-                            // add gold to the empty tile
-                            et.addGold();
-                        }
+    // packed cell accessors by index, used by the path finding engines to avoid creating Tile views
 
-                        tileRow.add(et);
+    // row of the cell at this index
+    int getRowOf(int index) {
+        return index / this.columns;
+    }
 
-                        // Exit
-                    } else if (row.charAt(colIndex) == 'E') {
+    // column of the cell at this index
+    int getColOf(int index) {
+        return index % this.columns;
+    }
 
-                        tileRow.add(new ExitTile(rowIndex, colIndex));
+    // total number of cells in the grid
+    int getCellCount() {
+        return this.cells.length;
+    }
 
-                        // Unknown character
-                    } else {
-                        // should be unreachable
-                        System.err.printf("Found unexpected character '%c' at row %d column %d," +
-                                " placing empty tile\n", row.charAt(colIndex), rowIndex, colIndex);
-                        // Default to adding empty tile since it is the least likely to cause problems
-                        EmptyTile et = new EmptyTile(rowIndex, colIndex);
-                        tileRow.add(et);
-                    }
-                }
+    // packed cell at this index
+    byte getCell(int index) {
+        return this.cells[index];
+    }
 
-                rowIndex++;
+    // can a player enter the cell at this index?
+    boolean canEnter(int index) {
+        return (this.cells[index] & TERRAIN_MASK) != WALL;
+    }
 
-                // append this row of Tiles to the 2D grid
-                this.grid.add(tileRow);
-            }
-        } catch (IOException e) {
-            System.err.println("There was an error reading the rows of the map.");
+    // shared path finding engine for the bots on this map, created the first time it's needed
+    public PathFinder getPathFinder() {
+        if (this.pathFinder == null) {
+            this.pathFinder = new PathFinder(this);
         }
+        return this.pathFinder;
     }
 
-    public void describeMap() {
-        System.out.println("The name of the map is: " + this.getMapName() + ".");
-        System.out.println("To win this map you must pick up " + this.getGoldWinCondition() + " gold.");
+    // distance field to the bots' objectives on this map, built the first time it's needed
+    // and then kept up to date as cells change
+    public ObjectiveField getObjectiveField() {
+        if (this.objectiveField == null) {
+            this.objectiveField = new ObjectiveField(this);
+            this.addListener(this.objectiveField);
+        }
+        return this.objectiveField;
     }
 
-    // prints 5 by 5 grid centered on input parameters rowCenter, colCenter
-    public void print5by5center(int rowCenter, int colCenter) {
-
-        for (int r = rowCenter - 2; r <= rowCenter + 2; r++) {
-            for (int c = colCenter - 2; c <= colCenter + 2; c++) {
-
-                // if position is out of bounds of the grid, print wall
-                if (this.isOutOfBounds(r, c)) {
-                    System.out.print('#');
-                    // position is within the grid, call the print method of the tile there
-                } else {
-                    Tile t = this.getTile(r, c);
-                    t.print();
-                }
-
-            }
-            // print newline after each row
-            System.out.println();
+    // cells where gold and players can spawn on this map, built the first time it's needed
+    // and then kept up to date as cells change
+    public SpawnIndex getSpawnIndex() {
+        if (this.spawnIndex == null) {
+            this.spawnIndex = new SpawnIndex(this);
+            this.addListener(this.spawnIndex);
         }
+        return this.spawnIndex;
     }
 
-    // used for testing purposes, to show the entire 2D grid
-    public void print() {
-        for (ArrayList<Tile> row : this.grid) {
-            for (Tile t : row) {
-                t.print();
-            }
-            System.out.println();
+    // gold and exit cells of this map bucketed by position, built the first time it's needed
+    // and then kept up to date as cells change
+    public GoalIndex getGoalIndex() {
+        if (this.goalIndex == null) {
+            this.goalIndex = new GoalIndex(this);
+            this.addListener(this.goalIndex);
         }
+        return this.goalIndex;
     }
 
-    // get the tile object in the grid at this position (at row, col)
-    public Tile getTile(int row, int col) {
-        if (this.isOutOfBounds(row, col)) {
-            // should be unreachable, default to returning null
-            System.err.println("You tried to get a Tile at " + row + " column " + col + " which is out of bounds.");
-            return null;
-        } else {
-            return this.grid.get(row).get(col);
+    // distance to the closest exit of every cell of this map, built the first time it's needed
+    // if it wasn't loaded with the map
+    public ExitField getExitField() {
+        if (this.exitField == null) {
+            this.exitField = ExitField.build(this);
         }
+        return this.exitField;
     }
 
-    // is this position (at row, col) in the grid out of bounds?
-    public boolean isOutOfBounds(int row, int col) {
-        if (this.grid.isEmpty()) { // edge case with no rows
-            return false;
-        }
-        return (row < 0 || row >= this.grid.size() || col < 0 || col >= this.grid.get(0).size());
+    // connected regions of this map, labelled when the map is created and kept up to date as cells change
+    public ComponentIndex getComponentIndex() {
+        return this.componentIndex;
     }
 
-    // can the player move to the tile at this position (at row, col)?
-    public boolean playerCanMoveTo(int row, int col) {
-        // grid bounds check
-        if (this.isOutOfBounds(row, col)) {
-            return false;
+    // clusters of this map for hierarchical path finding (see PathSearch.HIERARCHICAL), created the first
+    // time it's needed and built by its first query
+    public ClusterGraph getClusterGraph() {
+        if (this.clusterGraph == null) {
+            this.clusterGraph = new ClusterGraph(this);
         }
-        // the tile at the new proposed location
-        Tile t = this.getTile(row, col);
-        // the player is free to move to all tiles unless it is a wall
-        return t.canEnter();
-    }
-
-    // spawns gold at a random tile in the grid
-    public void spawnRandomGold() {
-        int row;
-        int col;
-        Tile randomTile;
-        do {
-            // get a random position in the grid
-            row = this.rand.nextInt(this.getRows());
-            col = this.rand.nextInt(this.getColumns());
-            // get the tile from that random position
-            randomTile = this.getTile(row, col);
-            // check whether gold can spawn on this tile
-        } while (randomTile.isNotGoldSpawnPoint());
+        return this.clusterGraph;
+    }
+
+    // spawns gold at a random tile in the grid and returns its index,
+    // throws a runtime exception if there is nowhere left to spawn it
+    public int spawnRandomGold() {
+        // pick a random tile out of those that gold can spawn on
+        int index = this.getSpawnIndex().getRandomGoldSpawn(this.rand);
+        Tile randomTile = this.getTile(this.getRowOf(index), this.getColOf(index));
 
         // tile that passed checks, at random position, now has gold on it
         randomTile.addGold();
         // the map now has 1 more gold
         this.incrementGoldCount();
+        return index;
+    }
+
+    // 64-bit FNV-1a hash of the dimensions, win condition and cells of the map, without the players, so that a
+    // replay can check it's played on the map it was recorded on (see ReplayLog)
+    public long getHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ this.rows) * 0x100000001b3L;
+        hash = (hash ^ this.columns) * 0x100000001b3L;
+        hash = (hash ^ this.goldWinCondition) * 0x100000001b3L;
+        for (byte cell : this.cells) {
+            hash = (hash ^ (cell & ~(HUMAN | BOT))) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // 64-bit FNV-1a hash of the dimensions and terrain of the map, all that its exit distances depend on,
+    // so that saved distances can be checked against the map they're loaded for (see ExitField)
+    public long getTerrainHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ this.rows) * 0x100000001b3L;
+        hash = (hash ^ this.columns) * 0x100000001b3L;
+        for (byte cell : this.cells) {
+            hash = (hash ^ (cell & TERRAIN_MASK)) * 0x100000001b3L;
+        }
+        return hash;
     }
 
     // getters/setters
@@ -237,6 +384,12 @@ public class Map {
         return this.goldCount;
     }
 
+    // count of gold on the map that the players can reach, gold walled off from where they spawn doesn't count
+    public int getReachableGoldCount() {
+        ComponentIndex components = this.componentIndex;
+        return components.getCount(ComponentIndex.GOLD, components.getPlayableComponent());
+    }
+
     // increment count of gold existing on the map
     public void incrementGoldCount() {
         this.goldCount++;
@@ -256,22 +409,36 @@ public class Map {
         return this.goldWinCondition;
     }
 
+    // random number generator of the map, also used to spawn the players and split off for the SmartBot
+    public GameRandom getRandom() {
+        return this.rand;
+    }
+
     public String getMapName() {
         return this.mapName;
     }
 
+    // engine that chases the human on this map (see PathFinder.findPathTo)
+    public PathSearch getPathSearch() {
+        return this.pathSearch;
+    }
+
+    public void setPathSearch(PathSearch pathSearch) {
+        this.pathSearch = pathSearch;
+    }
+
     // returns total number of grid rows
     public int getRows() {
-        return this.grid.size();
+        return this.rows;
     }
 
     // returns total number of grid columns
     public int getColumns() {
-        if (this.grid.isEmpty()) {
+        if (this.rows == 0) {
             // should be unreachable, no rows
             System.err.println("The grid has no rows");
             return 0;
         }
-        return this.grid.get(0).size();
+        return this.columns;
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+public class MapCatalog {
+
+    // Describes every map in the maps directory (name, dimensions, win condition and gold count) without
+    // building any of their grids. The descriptions are cached in a sidecar index file in the same directory,
+    // and a map's entry is only read again when its file has been modified since, so listing a large library
+    // only reads the files that changed. Grids are only loaded when a map is chosen (see MapLoader).
+    // A file that can't be described is left out of the catalog with a warning, so one broken map doesn't
+    // stop the others from being listed.
+
+    // name of the sidecar index file inside the maps directory
+    static final String INDEX_FILE_NAME = ".catalog";
+
+    // description of one map file
+    public static class Entry {
+
+        private final String filePath;
+        private final long lastModified;
+        private final long length;
+        private final String mapName;
+        private final int rows;
+        private final int columns;
+        private final int goldWinCondition;
+        private final int goldCount;
+
+        public Entry(String filePath, long lastModified, long length, String mapName,
+                     int rows, int columns, int goldWinCondition, int goldCount) {
+            this.filePath = filePath;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.mapName = mapName;
+            this.rows = rows;
+            this.columns = columns;
+            this.goldWinCondition = goldWinCondition;
+            this.goldCount = goldCount;
+        }
+
+        // does this entry still describe the file as it is now?
+        private boolean isUpToDate(File file) {
+            return this.lastModified == file.lastModified() && this.length == file.length();
+        }
+
+        // loads the grid of the map, only done once it's chosen to be played, saving its exit distances next to it
+        public Map load() {
+            return new Map(this.filePath, true);
+        }
+
+        // getters
+
+        public String getFilePath() {
+            return this.filePath;
+        }
+
+        public String getMapName() {
+            return this.mapName;
+        }
+
+        public int getRows() {
+            return this.rows;
+        }
+
+        public int getColumns() {
+            return this.columns;
+        }
+
+        public int getGoldWinCondition() {
+            return this.goldWinCondition;
+        }
+
+        public int getGoldCount() {
+            return this.goldCount;
+        }
+    }
+
+    private final File indexFile;
+    // entries of the map files currently in the directory, sorted by file name
+    private final ArrayList<Entry> entries = new ArrayList<>();
+
+    // describes the map files of the directory that pass the filter, reusing the index where it's up to date
+    public MapCatalog(File mapsDirectory, FileFilter mapFileFilter) {
+
+        this.indexFile = new File(mapsDirectory, INDEX_FILE_NAME);
+        HashMap<String, Entry> cachedEntries = this.readIndex();
+        boolean indexChanged = false;
+
+        // IntelliJ warning: if abstract pathname does not denote a directory
+        // then listFiles() returns null. The solution is to check for not null
+        File[] mapFiles = mapsDirectory.listFiles(mapFileFilter);
+        if (mapFiles != null) {
+            Arrays.sort(mapFiles);
+            for (File file : mapFiles) {
+                Entry entry = cachedEntries.remove(file.getPath());
+                if (entry == null || !entry.isUpToDate(file)) {
+                    indexChanged = true;
+                    try {
+                        entry = describe(file);
+                    } catch (RuntimeException e) {
+                        System.err.println("Warning: skipping the map file " + file.getPath() + ": " + e.getMessage());
+                        continue;
+                    }
+                }
+                this.entries.add(entry);
+            }
+        }
+
+        // any entries left over are for files that have been removed
+        if (indexChanged || !cachedEntries.isEmpty()) {
+            this.writeIndex();
+        }
+    }
+
+    // Describes the map file without building its grid. Binary map files only have their header read, text map
+    // files are still scanned to the end, to count their rows and gold and to check that every row is as wide
+    // as the first. Throws a runtime exception if the file isn't a valid map
+    private static Entry describe(File file) {
+        MapFileReader reader = new MapFileReader(file.getPath(), true);
+        return new Entry(file.getPath(), file.lastModified(), file.length(), reader.getMapName(),
+                reader.getRows(), reader.getColumns(), reader.getGoldWinCondition(), reader.getGoldCount());
+    }
+
+    // Reads the sidecar index, one tab separated entry per line:
+    //  file path, last modified, length, rows, columns, win condition, gold count, map name
+    // The map name is last and the line is split into 8 fields at most, so a name may contain tabs.
+    // A missing or damaged index only means the maps are described again, so any entry that can't be read
+    // is skipped
+    private HashMap<String, Entry> readIndex() {
+        HashMap<String, Entry> cachedEntries = new HashMap<>();
+        if (!this.indexFile.isFile()) {
+            return cachedEntries;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(this.indexFile, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] fields = line.split("\t", 8);
+                if (fields.length != 8) {
+                    continue;
+                }
+                try {
+                    Entry entry = new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            unescapeName(fields[7]), Integer.parseInt(fields[3]), Integer.parseInt(fields[4]),
+                            Integer.parseInt(fields[5]), Integer.parseInt(fields[6]));
+                    cachedEntries.put(entry.getFilePath(), entry);
+                } catch (NumberFormatException e) {
+                    // damaged entry, the map will be described again
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("There was an error reading the map catalog index, the maps will be described again.");
+        }
+        return cachedEntries;
+    }
+
+    // Writes the sidecar index. Failing to write it isn't fatal, the maps are just described again next time
+    private void writeIndex() {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
+                new FileWriter(this.indexFile, StandardCharsets.UTF_8)))) {
+            for (Entry entry : this.entries) {
+                writer.print(entry.filePath + "\t" + entry.lastModified + "\t" + entry.length + "\t");
+                writer.print(entry.rows + "\t" + entry.columns + "\t" + entry.goldWinCondition + "\t"
+                        + entry.goldCount + "\t");
+                writer.println(escapeName(entry.mapName));
+            }
+        } catch (IOException e) {
+            System.err.println("There was an error writing the map catalog index.");
+        }
+    }
+
+    // The map name as written to the index: a missing name is written as an empty field, and backslashes and
+    // line breaks (which binary map files allow) are escaped so that the entry stays on one line
+    private static String escapeName(String mapName) {
+        if (mapName == null) {
+            return "";
+        }
+        return mapName.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    // the map name as it was before escapeName, null if it was missing
+    private static String unescapeName(String field) {
+        if (field.isEmpty()) {
+            return null;
+        }
+        StringBuilder mapName = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char escaped = field.charAt(++i);
+                c = escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped;
+            }
+            mapName.append(c);
+        }
+        return mapName.toString();
+    }
+
+    // entries of all map files in the directory, sorted by file name
+    public List<Entry> getEntries() {
+        return this.entries;
+    }
+}
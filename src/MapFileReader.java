@@ -0,0 +1,354 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class MapFileReader {
+
+    // Reads a map file by memory-mapping it and parsing the headers and rows straight from the mapped bytes
+    // into the packed cells of the grid (see Map), without creating a String or a Tile for each line.
+    // Binary map files (see BinaryMapFormat) are recognised by their magic bytes, otherwise the file is text:
+    //  name X
+    //  win N
+    //  search X       (optional, the PathSearch that chases the human: astar, jps, hpa or bibfs, default astar)
+    //  followed by one line of tile characters per row, every row the same width
+
+    // packed cell of each tile character, or UNKNOWN_SYMBOL for characters that aren't tiles
+    private static final byte UNKNOWN_SYMBOL = -1;
+    private static final byte[] CELL_OF_SYMBOL = new byte[256];
+
+    static {
+        Arrays.fill(CELL_OF_SYMBOL, UNKNOWN_SYMBOL);
+        CELL_OF_SYMBOL['#'] = Map.WALL;
+        CELL_OF_SYMBOL['.'] = Map.EMPTY;
+        // I chose to have gold tiles as empty tiles that have gold on top of them
+        // instead of converting between GoldTile and EmptyTile when gold is picked up or spawned in
+        CELL_OF_SYMBOL['G'] = Map.EMPTY | Map.GOLD;
+        CELL_OF_SYMBOL['E'] = Map.EXIT;
+    }
+
+    private String mapName;
+    private int goldWinCondition;
+    private int goldCount = 0;
+    private int rows = 0;
+    private int columns = 0;
+    private byte[] cells = new byte[0];
+    private PathSearch pathSearch = PathSearch.A_STAR;
+
+    // the mapped file and the position up to which it has been parsed
+    private final MappedByteBuffer buffer;
+    private int position = 0;
+    // only read the name, dimensions, win condition and gold count, without building the grid
+    private final boolean headerOnly;
+
+    public MapFileReader(String filePath) {
+        this(filePath, false);
+    }
+
+    // When headerOnly is true the cells are left empty, which MapCatalog uses to describe maps cheaply.
+    // The rows of a text file are still read to count them and their gold, a binary file stops at its header
+    public MapFileReader(String filePath, boolean headerOnly) {
+
+        this.headerOnly = headerOnly;
+
+        // 1. Map the whole file into memory
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("The map file is too large, it must be smaller than 2 GB.");
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            // shouldn't throw unless file was changed since MapLoader checked
+        } catch (IOException e) {
+            // Cannot continue without reading the map, terminate by throwing a runtime exception
+            throw new RuntimeException("There was an error reading the map file.");
+        }
+
+        // binary map files only need their packed planes unpacking
+        if (isBinaryMap(this.buffer)) {
+            this.readBinary();
+            return;
+        }
+
+        // 2. Get the map name, assumes the first line will always be in the form: 'name X'
+        String firstLine = this.readHeaderLine();
+        if (firstLine.length() >= 5) {
+            this.mapName = firstLine.substring(5);
+        } else {
+            // named after the file instead, so that the map always has a name to print and save
+            this.mapName = getFileNameWithoutExtension(filePath);
+            System.err.println("There was an error reading the map name, using " + this.mapName + ".");
+        }
+
+        // 3. Get gold win condition, assumes the second line will always be in the form: 'win X'
+        try {
+            this.goldWinCondition = Integer.parseInt(this.readHeaderLine().substring(4).trim());
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            System.err.println("The gold win condition must be a number.");
+        }
+
+        // 4. The optional search line, rows always start with a tile character so they can't be mistaken for it
+        if (this.startsWith(this.position, "search ")) {
+            String keyword = this.readHeaderLine().substring(7).trim();
+            PathSearch search = PathSearch.fromKeyword(keyword);
+            if (search != null) {
+                this.pathSearch = search;
+            } else {
+                System.err.println("Unknown search " + keyword + ", expected astar, jps, hpa or bibfs. Using astar.");
+            }
+        }
+
+        // 5. Parse the rows into the packed grid
+        this.readRows();
+    }
+
+    // the name of the file at this path without its extension, e.g. "dungeon" for "maps/dungeon.txt"
+    private static String getFileNameWithoutExtension(String filePath) {
+        String fileName = Paths.get(filePath).getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? fileName.substring(0, extension) : fileName;
+    }
+
+    // does the mapped file start with the magic bytes of a binary map file?
+    static boolean isBinaryMap(ByteBuffer buffer) {
+        if (buffer.limit() < BinaryMapFormat.MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < BinaryMapFormat.MAGIC.length; i++) {
+            if (buffer.get(i) != BinaryMapFormat.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reads a binary map file, laid out as described in BinaryMapFormat
+    private void readBinary() {
+
+        ByteBuffer buffer = this.buffer;
+        buffer.position(BinaryMapFormat.MAGIC.length);
+
+        // version 1 files are the same without the search byte
+        byte version = buffer.get();
+        if (version < 1 || version > BinaryMapFormat.VERSION) {
+            throw new RuntimeException("The binary map file is version " + version + " but only versions 1 to "
+                    + BinaryMapFormat.VERSION + " can be read.");
+        }
+
+        this.rows = buffer.getInt();
+        this.columns = buffer.getInt();
+        this.goldWinCondition = buffer.getInt();
+        this.goldCount = buffer.getInt();
+        if (version >= 2) {
+            byte search = buffer.get();
+            if (search < 0 || search >= PathSearch.values().length) {
+                throw new RuntimeException("The binary map file selects an unknown search " + search + ".");
+            }
+            this.pathSearch = PathSearch.values()[search];
+        }
+        byte[] name = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(name);
+        this.mapName = new String(name, StandardCharsets.UTF_8);
+
+        if ((long) this.rows * this.columns > Integer.MAX_VALUE) {
+            throw new RuntimeException("The map has too many tiles.");
+        }
+
+        int cellCount = this.rows * this.columns;
+        // everything a header read needs is in the header of the binary format
+        if (this.headerOnly) {
+            return;
+        }
+
+        int terrainStart = buffer.position();
+        int goldStart = terrainStart + (cellCount + 3) / 4;
+        if (goldStart + (cellCount + 7) / 8 > buffer.limit()) {
+            throw new RuntimeException("The binary map file is shorter than its dimensions need.");
+        }
+
+        // copy both planes out of the mapped file in bulk, then unpack them from plain arrays
+        byte[] terrain = new byte[(cellCount + 3) / 4];
+        byte[] gold = new byte[(cellCount + 7) / 8];
+        buffer.get(terrainStart, terrain);
+        buffer.get(goldStart, gold);
+
+        // unpack the 2 terrain bits of every tile, 4 tiles per byte
+        this.cells = new byte[cellCount];
+        int fullBytes = cellCount / 4;
+        for (int b = 0; b < fullBytes; b++) {
+            int packed = terrain[b];
+            int i = b * 4;
+            this.cells[i] = (byte) (packed & Map.TERRAIN_MASK);
+            this.cells[i + 1] = (byte) ((packed >> 2) & Map.TERRAIN_MASK);
+            this.cells[i + 2] = (byte) ((packed >> 4) & Map.TERRAIN_MASK);
+            this.cells[i + 3] = (byte) ((packed >> 6) & Map.TERRAIN_MASK);
+        }
+        for (int i = fullBytes * 4; i < cellCount; i++) {
+            this.cells[i] = (byte) ((terrain[i >> 2] >> ((i & 3) * 2)) & Map.TERRAIN_MASK);
+        }
+
+        // then add gold on top, skipping whole bytes of the bitmap that have no gold
+        for (int b = 0; b < gold.length; b++) {
+            int goldBits = gold[b] & 0xFF;
+            while (goldBits != 0) {
+                int bit = Integer.numberOfTrailingZeros(goldBits);
+                this.cells[b * 8 + bit] |= Map.GOLD;
+                goldBits &= goldBits - 1;
+            }
+        }
+
+        this.position = buffer.limit();
+    }
+
+    // Reads the line at the current position as a String, only used for the two short header lines
+    private String readHeaderLine() {
+        int end = this.findLineEnd(this.position);
+        byte[] line = new byte[this.trimCarriageReturn(this.position, end) - this.position];
+        this.buffer.get(this.position, line);
+        this.position = Math.min(end + 1, this.buffer.limit());
+        return new String(line);
+    }
+
+    // The rows are read in two passes over the mapped bytes:
+    // 1. find the number of rows and check every row is as wide as the first, which isOutOfBounds relies on
+    // 2. translate every character into its packed cell
+    private void readRows() {
+
+        int limit = this.buffer.limit();
+
+        // 1. count and validate the rows. Empty lines at the end of the file are not rows
+        int rowsEnd = limit;
+        while (rowsEnd > this.position && isLineBreak(this.buffer.get(rowsEnd - 1))) {
+            rowsEnd--;
+        }
+
+        int lineStart = this.position;
+        while (lineStart < rowsEnd) {
+            int lineEnd = this.findLineEnd(lineStart);
+            int width = this.trimCarriageReturn(lineStart, lineEnd) - lineStart;
+            if (this.rows == 0) {
+                this.columns = width;
+            } else if (width != this.columns) {
+                // Cannot continue with a ragged grid, terminate by throwing a runtime exception
+                throw new RuntimeException("Row " + this.rows + " of the map is " + width
+                        + " tiles wide but the first row is " + this.columns + " tiles wide.");
+            }
+            this.rows++;
+            lineStart = lineEnd + 1;
+        }
+
+        if ((long) this.rows * this.columns > Integer.MAX_VALUE) {
+            throw new RuntimeException("The map has too many tiles.");
+        }
+
+        // a header read only counts the gold, which doesn't need the grid
+        if (this.headerOnly) {
+            this.countGold();
+            return;
+        }
+
+        // 2. translate the characters of each row into packed cells
+        this.cells = new byte[this.rows * this.columns];
+        lineStart = this.position;
+        for (int rowIndex = 0; rowIndex < this.rows; rowIndex++) {
+            int offset = rowIndex * this.columns;
+            for (int colIndex = 0; colIndex < this.columns; colIndex++) {
+                byte symbol = this.buffer.get(lineStart + colIndex);
+                byte cell = CELL_OF_SYMBOL[symbol & 0xFF];
+                if (cell == UNKNOWN_SYMBOL) {
+                    // should be unreachable
+                    System.err.printf("Found unexpected character '%c' at row %d column %d," +
+                            " placing empty tile\n", (char) (symbol & 0xFF), rowIndex, colIndex);
+                    // Default to adding empty tile since it is the least likely to cause problems
+                    cell = Map.EMPTY;
+                } else if ((cell & Map.GOLD) != 0) {
+                    this.goldCount++;
+                }
+                this.cells[offset + colIndex] = cell;
+            }
+            // every row is the same width, so the line break is searched for from the end of the row
+            lineStart = this.findLineEnd(lineStart + this.columns) + 1;
+        }
+        this.position = limit;
+    }
+
+    // counts the gold characters of the rows without translating them
+    private void countGold() {
+        int limit = this.buffer.limit();
+        for (int i = this.position; i < limit; i++) {
+            if (this.buffer.get(i) == 'G') {
+                this.goldCount++;
+            }
+        }
+        this.position = limit;
+    }
+
+    // does the mapped file contain this ASCII text at this position?
+    private boolean startsWith(int position, String text) {
+        if (position + text.length() > this.buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (this.buffer.get(position + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // index of the '\n' ending the line that starts at start, or the end of the file
+    private int findLineEnd(int start) {
+        int limit = this.buffer.limit();
+        int end = start;
+        while (end < limit && this.buffer.get(end) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    // the end of the line without the '\r' of Windows line endings
+    private int trimCarriageReturn(int start, int end) {
+        if (end > start && this.buffer.get(end - 1) == '\r') {
+            return end - 1;
+        }
+        return end;
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    // getters
+
+    public String getMapName() {
+        return this.mapName;
+    }
+
+    public int getGoldWinCondition() {
+        return this.goldWinCondition;
+    }
+
+    // number of tiles with gold on them
+    public int getGoldCount() {
+        return this.goldCount;
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    public int getColumns() {
+        return this.columns;
+    }
+
+    // engine the map file selected to chase the human
+    public PathSearch getPathSearch() {
+        return this.pathSearch;
+    }
+
+    // packed cells of the grid, indexed by row * columns + col
+    public byte[] getCells() {
+        return this.cells;
+    }
+}
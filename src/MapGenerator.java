@@ -0,0 +1,290 @@
+import java.io.*;
+import java.util.*;
+
+public class MapGenerator {
+
+    // Generates large maps for scale testing, in the same text format the game loads (see MapFileReader).
+    // The grid is kept as one byte per tile holding the character that will be written, and it's streamed to
+    // the file a row at a time, so a 10k x 10k map needs about 100 MB rather than a String of the whole map.
+    // The same seed and arguments always generate the same map.
+
+    // Usage: java -cp out MapGenerator <maze|cavern|rooms> <rows> <columns> <seed> <gold density> <exits> <output file> [win]
+    // e.g. java -cp out MapGenerator cavern 2048 2048 42 0.01 3 maps/cavern_2048.txt
+    // gold density is the chance of each floor tile having gold on it,
+    // win is the gold needed to win and defaults to the gold on the map, up to 10
+
+    // maps with at least this many tiles select hierarchical path finding
+    private static final long HIERARCHICAL_SEARCH_TILES = 10_000_000L;
+
+    private final int rows;
+    private final int columns;
+    private final Random rand;
+    // characters of the map, indexed by row * columns + col
+    private final byte[] grid;
+    // number of tiles with gold on them
+    private int goldCount = 0;
+    // engine the written map selects to chase the human (see PathSearch)
+    private PathSearch pathSearch = PathSearch.A_STAR;
+
+    public MapGenerator(int rows, int columns, long seed) {
+        if (rows < 3 || columns < 3) {
+            throw new RuntimeException("A map must be at least 3x3 to have any floor inside its walls.");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.rand = new Random(seed);
+        this.grid = new byte[rows * columns];
+        Arrays.fill(this.grid, (byte) '#');
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 7) {
+            System.err.println("Usage: java -cp out MapGenerator <maze|cavern|rooms> <rows> <columns> <seed>"
+                    + " <gold density> <exits> <output file> [win]");
+            System.exit(1);
+        }
+
+        String layout = args[0];
+        int rows = Integer.parseInt(args[1]);
+        int columns = Integer.parseInt(args[2]);
+        long seed = Long.parseLong(args[3]);
+        double goldDensity = Double.parseDouble(args[4]);
+        int exits = Integer.parseInt(args[5]);
+
+        MapGenerator generator = new MapGenerator(rows, columns, seed);
+        generator.generate(layout, goldDensity, exits);
+
+        int goldWinCondition = args.length > 7 ? Integer.parseInt(args[7]) : generator.getDefaultGoldWinCondition();
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[6]), 1 << 16)) {
+            generator.write(out, layout + " " + rows + "x" + columns + " " + seed, goldWinCondition);
+        }
+    }
+
+    // carves out the layout, then places gold and exits on the floor
+    public void generate(String layout, double goldDensity, int exits) {
+        if (layout.equals("maze")) {
+            this.carveMaze();
+            this.pathSearch = PathSearch.BIDIRECTIONAL;
+        } else if (layout.equals("cavern")) {
+            this.carveCavern();
+        } else if (layout.equals("rooms")) {
+            this.carveRooms();
+            this.pathSearch = PathSearch.JUMP_POINT;
+        } else {
+            throw new RuntimeException("Unknown layout " + layout + ", expected maze, cavern or rooms.");
+        }
+        this.placeGold(goldDensity);
+        this.placeExits(exits);
+        // searching tile by tile every turn is too slow on the largest maps
+        if ((long) this.rows * this.columns >= HIERARCHICAL_SEARCH_TILES) {
+            this.pathSearch = PathSearch.HIERARCHICAL;
+        }
+    }
+
+    // Streams the map to out: the 'name', 'win' and (for mazes and rooms) 'search' headers,
+    // then one row of characters per line
+    public void write(OutputStream out, String name, int goldWinCondition) throws IOException {
+        out.write(("name " + name + "\n").getBytes());
+        out.write(("win " + goldWinCondition + "\n").getBytes());
+        if (this.pathSearch != PathSearch.A_STAR) {
+            out.write(("search " + this.pathSearch.getKeyword() + "\n").getBytes());
+        }
+        for (int r = 0; r < this.rows; r++) {
+            out.write(this.grid, r * this.columns, this.columns);
+            out.write('\n');
+        }
+    }
+
+    // Maze: depth-first search carving passages between tiles at odd positions, with an explicit stack
+    // instead of recursion so that huge mazes can't overflow the call stack
+    private void carveMaze() {
+
+        // maze cells sit on odd rows and columns, the tiles between them are the walls that can be knocked down
+        int cellRows = (this.rows - 1) / 2;
+        int cellColumns = (this.columns - 1) / 2;
+        int[] stack = new int[cellRows * cellColumns];
+        int[] candidates = new int[4];
+        int size = 0;
+
+        int start = this.index(1, 1);
+        this.grid[start] = '.';
+        stack[size++] = start;
+
+        while (size > 0) {
+
+            int current = stack[size - 1];
+            int row = current / this.columns;
+            int col = current % this.columns;
+
+            // unvisited maze cells two tiles away
+            int count = 0;
+            if (row - 2 >= 1 && this.grid[current - 2 * this.columns] == '#') {
+                candidates[count++] = current - 2 * this.columns;
+            }
+            if (row + 2 < this.rows - 1 && this.grid[current + 2 * this.columns] == '#') {
+                candidates[count++] = current + 2 * this.columns;
+            }
+            if (col - 2 >= 1 && this.grid[current - 2] == '#') {
+                candidates[count++] = current - 2;
+            }
+            if (col + 2 < this.columns - 1 && this.grid[current + 2] == '#') {
+                candidates[count++] = current + 2;
+            }
+
+            // dead end, backtrack
+            if (count == 0) {
+                size--;
+                continue;
+            }
+
+            // knock down the wall between the current cell and a random unvisited neighbour
+            int next = candidates[this.rand.nextInt(count)];
+            this.grid[(current + next) / 2] = '.';
+            this.grid[next] = '.';
+            stack[size++] = next;
+        }
+    }
+
+    // Cavern: random noise smoothed by a cellular automaton, a tile becomes a wall when most of its
+    // 8 neighbours are walls. Two buffers are swapped between the smoothing steps
+    private void carveCavern() {
+
+        for (int r = 1; r < this.rows - 1; r++) {
+            for (int c = 1; c < this.columns - 1; c++) {
+                this.grid[this.index(r, c)] = this.rand.nextInt(100) < 45 ? (byte) '#' : (byte) '.';
+            }
+        }
+
+        byte[] current = this.grid;
+        byte[] next = current.clone();
+        for (int step = 0; step < 4; step++) {
+            for (int r = 1; r < this.rows - 1; r++) {
+                for (int c = 1; c < this.columns - 1; c++) {
+                    int walls = 0;
+                    for (int dr = -1; dr <= 1; dr++) {
+                        for (int dc = -1; dc <= 1; dc++) {
+                            if ((dr != 0 || dc != 0) && current[this.index(r + dr, c + dc)] == '#') {
+                                walls++;
+                            }
+                        }
+                    }
+                    next[this.index(r, c)] = walls >= 5 ? (byte) '#' : (byte) '.';
+                }
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+        }
+
+        // after an even number of steps the result is back in the grid
+        if (current != this.grid) {
+            System.arraycopy(current, 0, this.grid, 0, this.grid.length);
+        }
+    }
+
+    // Rooms and corridors: the map is split into sectors with one random rectangular room in each, and every
+    // room is joined to the rooms of the sectors to its right and below by L-shaped corridors. Keeping the
+    // corridors between neighbouring sectors keeps the work proportional to the size of the map
+    private void carveRooms() {
+
+        final int sectorSize = 20;
+        int sectorRows = Math.max(1, (this.rows - 2) / sectorSize);
+        int sectorColumns = Math.max(1, (this.columns - 2) / sectorSize);
+        int sectorHeight = (this.rows - 2) / sectorRows;
+        int sectorWidth = (this.columns - 2) / sectorColumns;
+
+        // centers of the rooms, indexed by sector
+        int[] centerRows = new int[sectorRows * sectorColumns];
+        int[] centerCols = new int[sectorRows * sectorColumns];
+
+        for (int sr = 0; sr < sectorRows; sr++) {
+            for (int sc = 0; sc < sectorColumns; sc++) {
+
+                // a room of at least 1x1 that fits inside its sector
+                int height = 1 + this.rand.nextInt(Math.max(1, sectorHeight - 2));
+                int width = 1 + this.rand.nextInt(Math.max(1, sectorWidth - 2));
+                int top = 1 + sr * sectorHeight + this.rand.nextInt(sectorHeight - height + 1);
+                int left = 1 + sc * sectorWidth + this.rand.nextInt(sectorWidth - width + 1);
+
+                for (int r = top; r < top + height; r++) {
+                    Arrays.fill(this.grid, this.index(r, left), this.index(r, left + width), (byte) '.');
+                }
+
+                int sector = sr * sectorColumns + sc;
+                centerRows[sector] = top + height / 2;
+                centerCols[sector] = left + width / 2;
+
+                // join to the room of the sector above and the sector to the left
+                if (sr > 0) {
+                    int above = sector - sectorColumns;
+                    this.carveCorridor(centerRows[above], centerCols[above], centerRows[sector], centerCols[sector]);
+                }
+                if (sc > 0) {
+                    int before = sector - 1;
+                    this.carveCorridor(centerRows[before], centerCols[before], centerRows[sector], centerCols[sector]);
+                }
+            }
+        }
+    }
+
+    // carves a corridor along the row then along the column between the two positions
+    private void carveCorridor(int fromRow, int fromCol, int toRow, int toCol) {
+        for (int c = Math.min(fromCol, toCol); c <= Math.max(fromCol, toCol); c++) {
+            this.grid[this.index(fromRow, c)] = '.';
+        }
+        for (int r = Math.min(fromRow, toRow); r <= Math.max(fromRow, toRow); r++) {
+            this.grid[this.index(r, toCol)] = '.';
+        }
+    }
+
+    // every floor tile has gold on it with the chance of the gold density
+    private void placeGold(double goldDensity) {
+        for (int i = 0; i < this.grid.length; i++) {
+            if (this.grid[i] == '.' && this.rand.nextDouble() < goldDensity) {
+                this.grid[i] = 'G';
+                this.goldCount++;
+            }
+        }
+    }
+
+    // places the exits on random floor tiles, at least one so that the map can be won
+    private void placeExits(int exits) {
+
+        // Random positions are tried first, which is quick unless the map is almost all wall
+        int placed = 0;
+        for (int attempt = 0; placed < exits && attempt < exits * 1000; attempt++) {
+            int i = this.rand.nextInt(this.grid.length);
+            if (this.grid[i] == '.') {
+                this.grid[i] = 'E';
+                placed++;
+            }
+        }
+
+        // then the first floor tiles found, so that there is always at least one exit
+        for (int i = 0; i < this.grid.length && placed < Math.max(1, exits); i++) {
+            if (this.grid[i] == '.' || this.grid[i] == 'G') {
+                if (this.grid[i] == 'G') {
+                    this.goldCount--;
+                }
+                this.grid[i] = 'E';
+                placed++;
+            }
+        }
+
+        if (placed == 0) {
+            throw new RuntimeException("The generated map has no floor to place an exit on.");
+        }
+    }
+
+    // the gold on the map, up to 10, but at least 1 since the game spawns more gold when there isn't enough
+    public int getDefaultGoldWinCondition() {
+        return Math.max(1, Math.min(10, this.goldCount));
+    }
+
+    // index of the tile at this position (at row, col) in the grid
+    private int index(int row, int col) {
+        return row * this.columns + col;
+    }
+}
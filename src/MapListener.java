@@ -0,0 +1,8 @@
+// Implemented by anything that keeps its own view of the map up to date (e.g. ObjectiveField).
+// Listeners are registered with Map.addListener and told about every cell that changes,
+// which happens whenever gold or a player is added to or removed from a Tile
+public interface MapListener {
+
+    // the cell at this index changed from previousCell to cell (packed as described in Map)
+    void cellChanged(int index, byte previousCell, byte cell);
+}
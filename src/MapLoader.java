@@ -3,64 +3,43 @@ import java.util.*;
 
 public class MapLoader {
 
-    // stores paths of map files
-    private final ArrayList<String> mapFilePaths = new ArrayList<>();
+    // describes every valid map file without loading their grids (see MapCatalog)
+    private final MapCatalog catalog;
 
-    // loads maps (.txt files which are not README.txt) from the current directory
-    // and populates mapFilePaths when instantiated
+    // catalogs maps (.txt files which are not README.txt and binary .dodm files) from the maps directory
+    // when instantiated. Only the headers of new or modified files are read, the grid of a map is only
+    // loaded once it has been chosen
     public MapLoader() {
-        this.getMapFilePaths();
+        this.catalog = new MapCatalog(new File("maps"), this::isValidMapFile);
     }
 
-    // populates mapFilePaths with absolute paths of all valid map files
-    private void getMapFilePaths() {
-        // get maps directory
-        File mapsDirectory = new File("maps");
-        // get all files in maps directory
-        File[] mapFiles = mapsDirectory.listFiles();
-        // credits to: https://stackoverflow.com/a/37152114
-        // IntelliJ warning: if abstract pathname does not denote a directory
-        // then listFiles() returns null. The solution is to check for not null
-        if (mapFiles != null) {
-            for (File file : mapFiles) {
-                if (isValidMapFile(file)) {
-                    this.mapFilePaths.add(file.getPath());
-                }
-            }
-        }
-    }
-
-    // is the file passed as a parameter a .txt file that is not README.txt
+    // is the file passed as a parameter a .txt file that is not README.txt, or a binary map file?
+    // Map tells the two formats apart by the content of the file (see MapFileReader)
     private boolean isValidMapFile(File file) {
         String fileName = file.getName();
-        return fileName.endsWith(".txt") && !fileName.startsWith("README");
+        return file.isFile() && ((fileName.endsWith(".txt") && !fileName.startsWith("README"))
+                || fileName.endsWith(BinaryMapFormat.EXTENSION));
     }
 
     // prints all valid maps, numbered (one-indexed) for the user to select
     public void printMapSelection() {
 
-        // number of valid maps found
-        int len = this.mapFilePaths.size();
+        List<MapCatalog.Entry> entries = this.catalog.getEntries();
 
         // none found, terminate program by throwing a runtime exception
-        if (len == 0) {
-            throw new RuntimeException("No valid map files found in the current directory (.txt only excluding README.txt)");
+        if (entries.isEmpty()) {
+            throw new RuntimeException("No valid map files found in the current directory"
+                    + " (.txt excluding README.txt, or .dodm)");
         }
 
         // iterate over each map
-        for (int index = 0; index < len; index++) {
-
-            String pathName = this.mapFilePaths.get(index);
-            // pathName is absolute path: "./maps/example_map.txt"
-
-            int startMapName = pathName.lastIndexOf('/') + 1;
-            int endMapName = pathName.lastIndexOf('.');
+        for (int index = 0; index < entries.size(); index++) {
 
-            String mapName = pathName.substring(startMapName, endMapName);
-            // mapName after slicing: "example_map"
+            MapCatalog.Entry entry = entries.get(index);
 
-            // print index + mapName (one-indexed)
-            System.out.printf("%d. %s\n", index + 1, mapName);
+            // print index + map name, dimensions and win condition (one-indexed)
+            System.out.printf("%d. %s (%dx%d, win %d)\n", index + 1, entry.getMapName(),
+                    entry.getRows(), entry.getColumns(), entry.getGoldWinCondition());
         }
     }
 
@@ -72,8 +51,28 @@ public class MapLoader {
         // delegate all responsibility to UserInput regarding handling user input
         // getIndexWithinRange will repeatedly prompt the user for a valid index
         // according to the list size parameter passed in
-        int listIndex = userInput.getIndexWithinRange(this.mapFilePaths.size());
+        int listIndex = userInput.getIndexWithinRange(this.catalog.getEntries().size());
 
-        return new Map(this.mapFilePaths.get(listIndex));
+        Map map = this.catalog.getEntries().get(listIndex).load();
+        this.warnIfExitUnreachable(map);
+        return map;
+    }
+
+    // Warns when most of the map can't reach an exit. The game can still be played,
+    // since gold and players only spawn where an exit can be reached (see ComponentIndex)
+    private void warnIfExitUnreachable(Map map) {
+        ComponentIndex components = map.getComponentIndex();
+        int largest = components.getLargestComponent();
+        if (largest == ComponentIndex.WALL || components.getCount(ComponentIndex.EXIT, largest) > 0) {
+            return;
+        }
+        int playable = components.getPlayableComponent();
+        if (components.getCount(ComponentIndex.EXIT, playable) == 0) {
+            System.err.println("Warning: " + map.getMapName() + " has no exit, the game can't be won.");
+        } else {
+            System.err.println("Warning: the exit of " + map.getMapName() + " can't be reached from "
+                    + components.getSize(largest) + " tiles of its largest region, players will only spawn in the "
+                    + components.getSize(playable) + " tiles that can reach it.");
+        }
     }
 }
@@ -0,0 +1,137 @@
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+public class MapRenderer {
+
+    // Draws views of the map (any rectangle of rows and columns, e.g. the 5x5 grid of a look or the whole map)
+    // straight from the packed grid into a reusable frame of chars, and prints each view with one call
+    // instead of one synchronized print per tile. Views of large maps are drawn and printed a chunk of rows
+    // at a time, so the frame never grows past MAX_FRAME_LENGTH chars unless a single row is longer.
+    // In diff mode (printChanges) the last view printed is remembered, and only the rows that differ from it
+    // are printed again, each after an ANSI escape moving the cursor to its line, so that a terminal showing
+    // the map between turns only redraws what moved. A renderer is used by one game at a time, like its map.
+
+    // symbol of every packed cell, a bot shown over a human, a human over gold and gold over the terrain
+    private static final char[] SYMBOLS = new char[1 << 5];
+    // what is printed outside the grid
+    private static final char OUT_OF_BOUNDS = '#';
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    // chars of a frame before it is printed and drawn again from the next row
+    private static final int MAX_FRAME_LENGTH = 1 << 16;
+    // ANSI control sequence introducer
+    private static final String CSI = "\033[";
+
+    static {
+        char[] terrainSymbols = {'.', '#', 'E', '.'};
+        for (int cell = 0; cell < SYMBOLS.length; cell++) {
+            if ((cell & Map.BOT) != 0) {
+                SYMBOLS[cell] = 'B';
+            } else if ((cell & Map.HUMAN) != 0) {
+                SYMBOLS[cell] = 'P';
+            } else if ((cell & Map.GOLD) != 0) {
+                SYMBOLS[cell] = 'G';
+            } else {
+                SYMBOLS[cell] = terrainSymbols[cell & Map.TERRAIN_MASK];
+            }
+        }
+    }
+
+    private final Map map;
+    // reused for every view, rows followed by line separators
+    private char[] frame = new char[0];
+
+    // diff mode: the symbols of the last view printed, row after row without line separators,
+    // or null if the next view has to be printed in full
+    private char[] shown;
+    private int shownHeight;
+    private int shownWidth;
+    // builds the escapes and changed rows of a view, reused between views
+    private final StringBuilder changes = new StringBuilder();
+
+    public MapRenderer(Map map) {
+        this.map = map;
+    }
+
+    // Prints the view of height rows and width columns whose top left tile is at (firstRow, firstCol),
+    // each row followed by a line separator. Tiles outside the grid are printed as walls
+    public void print(int firstRow, int firstCol, int height, int width, PrintStream out) {
+        int rowLength = width + LINE_SEPARATOR.length();
+        int rowsPerFrame = Math.max(1, Math.min(height, MAX_FRAME_LENGTH / rowLength));
+        if (this.frame.length < rowsPerFrame * rowLength) {
+            this.frame = new char[rowsPerFrame * rowLength];
+        }
+
+        for (int done = 0; done < height; done += rowsPerFrame) {
+            int rowCount = Math.min(rowsPerFrame, height - done);
+            int length = 0;
+            for (int r = 0; r < rowCount; r++) {
+                this.drawRow(firstRow + done + r, firstCol, width, this.frame, length);
+                length += width;
+                LINE_SEPARATOR.getChars(0, LINE_SEPARATOR.length(), this.frame, length);
+                length += LINE_SEPARATOR.length();
+            }
+            if (length == this.frame.length) {
+                out.print(this.frame);
+            } else {
+                out.append(CharBuffer.wrap(this.frame, 0, length));
+            }
+        }
+    }
+
+    // Diff mode: prints the view like print, but at the top of the terminal and only the rows that changed
+    // since the last view printed in diff mode. The first view, and any view of another size, clears the
+    // terminal and is printed in full. The cursor is left on the line below the view
+    public void printChanges(int firstRow, int firstCol, int height, int width, PrintStream out) {
+        StringBuilder changes = this.changes;
+        changes.setLength(0);
+
+        boolean full = this.shown == null || this.shownHeight != height || this.shownWidth != width;
+        if (full) {
+            this.shown = new char[height * width];
+            this.shownHeight = height;
+            this.shownWidth = width;
+            // cursor to the top left, then clear the terminal
+            changes.append(CSI).append("H").append(CSI).append("2J");
+        }
+        if (this.frame.length < width) {
+            this.frame = new char[width];
+        }
+
+        for (int r = 0; r < height; r++) {
+            this.drawRow(firstRow + r, firstCol, width, this.frame, 0);
+            if (!full && Arrays.equals(this.frame, 0, width, this.shown, r * width, r * width + width)) {
+                continue;
+            }
+            System.arraycopy(this.frame, 0, this.shown, r * width, width);
+            // terminal lines and columns are one-indexed
+            changes.append(CSI).append(r + 1).append(";1H").append(this.frame, 0, width);
+        }
+        changes.append(CSI).append(height + 1).append(";1H");
+        out.append(changes);
+    }
+
+    // Draws the width symbols of the row from firstCol into the frame at offset. The tiles within the grid
+    // are read straight from consecutive cells, only the columns outside it are drawn one by one
+    private void drawRow(int row, int firstCol, int width, char[] frame, int offset) {
+        int rows = this.map.getRows();
+        int columns = this.map.getColumns();
+        int lastCol = firstCol + width;
+        if (row < 0 || row >= rows) {
+            Arrays.fill(frame, offset, offset + width, OUT_OF_BOUNDS);
+            return;
+        }
+        int from = Math.max(firstCol, 0);
+        int to = Math.min(lastCol, columns);
+        for (int col = firstCol; col < Math.min(from, lastCol); col++) {
+            frame[offset++] = OUT_OF_BOUNDS;
+        }
+        int index = row * columns + from;
+        for (int col = from; col < to; col++) {
+            frame[offset++] = SYMBOLS[this.map.getCell(index++)];
+        }
+        for (int col = Math.max(to, from); col < lastCol; col++) {
+            frame[offset++] = OUT_OF_BOUNDS;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.*;
+
+public class MinHeap {
+
+    // Binary min-heap of int values ordered by long keys, kept in two parallel primitive arrays so that
+    // pushing and popping allocates nothing once the arrays have grown to the size of the search.
+    // Searches pack two ints into each key, e.g. (estimated length << 32 | distance left), so that
+    // ties on the first are broken by the second without a comparator.
+
+    private long[] keys;
+    private int[] values;
+    private int size = 0;
+
+    public MinHeap(int initialCapacity) {
+        this.keys = new long[Math.max(initialCapacity, 1)];
+        this.values = new int[Math.max(initialCapacity, 1)];
+    }
+
+    // packs two non-negative ints into a key ordered by high first, then low
+    public static long pack(int high, int low) {
+        return (long) high << 32 | low;
+    }
+
+    public void push(long key, int value) {
+        if (this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            this.values = Arrays.copyOf(this.values, this.size * 2);
+        }
+        // sift up from the end
+        int position = this.size++;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (this.keys[parent] <= key) {
+                break;
+            }
+            this.keys[position] = this.keys[parent];
+            this.values[position] = this.values[parent];
+            position = parent;
+        }
+        this.keys[position] = key;
+        this.values[position] = value;
+    }
+
+    // removes and returns the value with the smallest key
+    public int pop() {
+        int top = this.values[0];
+        this.size--;
+        long key = this.keys[this.size];
+        int value = this.values[this.size];
+
+        // sift the last entry down from the root
+        int position = 0;
+        int half = this.size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+                child++;
+            }
+            if (key <= this.keys[child]) {
+                break;
+            }
+            this.keys[position] = this.keys[child];
+            this.values[position] = this.values[child];
+            position = child;
+        }
+        this.keys[position] = key;
+        this.values[position] = value;
+        return top;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+}
@@ -0,0 +1,40 @@
+// Discards every event without formatting it, for games that nobody watches (e.g. Simulator and Benchmark).
+// It has no state, so one sink can be shared by any number of games at once
+public class NullSink implements OutputSink {
+
+    public void message(String text) {
+    }
+
+    public void prompt(String text) {
+    }
+
+    public void humanTurn() {
+    }
+
+    public void botTurn() {
+    }
+
+    public void goldToWin(int gold) {
+    }
+
+    public void goldOwned(int gold) {
+    }
+
+    public void moved(boolean success) {
+    }
+
+    public void pickedUp(boolean success, int gold) {
+    }
+
+    public void invalidCommand() {
+    }
+
+    public void look(Map map, int rowCenter, int colCenter) {
+    }
+
+    public void gameOver(GameResult result) {
+    }
+
+    public void close() {
+    }
+}
@@ -0,0 +1,255 @@
+import java.util.*;
+
+public class ObjectiveField implements MapListener {
+
+    // Stores, for every cell, the distance to the closest objective of a bot (see PathFinder.findNearestObjective).
+    // A bot's objectives depend on whether it has enough gold to win, so two fields are used:
+    //  loot field: distance to the closest gold, kept here
+    //  exit field: distance to the closest exit, which never changes and is shared by copies of the map
+    //              (see ExitField)
+    // The loot field is built once with a multi-source breadth-first search and then only the cells affected
+    // by a change are updated, so a bot's move is a single step downhill towards the closest objective.
+    // The human isn't part of either field: it moves every turn, and removing it as a source would
+    // invalidate every cell it was the closest objective of. OmniscientBot chases it with A* instead.
+
+    // distance of cells that cannot reach any objective (including walls)
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final Map map;
+    private final int rows;
+    private final int columns;
+    private final int[] lootDistance;
+
+    // work arrays of the updates, allocated once
+    // queue of cells whose distance changed and whose neighbours need to be relaxed
+    private final int[] queue;
+    // cells that lost every shortest path to an objective when an objective was removed
+    private final int[] invalidated;
+    // (distance << 32 | cell) of the cells to restart the search from after an objective was removed
+    private final long[] seeds;
+    // a cell has been queued in the current update if its epoch matches the current epoch
+    private final int[] markEpoch;
+    private int epoch = 0;
+
+    public ObjectiveField(Map map) {
+        this.map = map;
+        this.rows = map.getRows();
+        this.columns = map.getColumns();
+        int cellCount = map.getCellCount();
+        this.lootDistance = new int[cellCount];
+        this.queue = new int[cellCount];
+        this.invalidated = new int[cellCount];
+        this.seeds = new long[cellCount];
+        this.markEpoch = new int[cellCount];
+        this.build(this.lootDistance);
+    }
+
+    // Returns the neighbouring cell to move to from this cell to get closer to the closest objective,
+    // or -1 if no objective can be reached. The cell itself is never treated as the objective
+    public int getNextStep(int index, boolean botHasEnoughGold) {
+        if (botHasEnoughGold) {
+            return this.map.getExitField().getNextStep(index);
+        }
+        int[] distance = this.lootDistance;
+        int row = this.map.getRowOf(index);
+        int col = this.map.getColOf(index);
+        int nextStep = -1;
+        int closest = UNREACHABLE;
+        for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+            int neighbour = this.getNeighbour(row, col, d);
+            if (neighbour != -1 && distance[neighbour] < closest) {
+                closest = distance[neighbour];
+                nextStep = neighbour;
+            }
+        }
+        return nextStep;
+    }
+
+    // Returns the distance from this cell to the closest objective, or UNREACHABLE
+    public int getDistance(int index, boolean botHasEnoughGold) {
+        return botHasEnoughGold ? this.map.getExitField().getDistance(index) : this.lootDistance[index];
+    }
+
+    // keeps the loot field up to date when gold is added to or removed from a cell
+    public void cellChanged(int index, byte previousCell, byte cell) {
+        boolean wasSource = isSource(previousCell);
+        boolean isSource = isSource(cell);
+        if (!wasSource && isSource) {
+            this.addSource(this.lootDistance, index);
+        } else if (wasSource && !isSource) {
+            this.removeSource(this.lootDistance, index);
+        }
+    }
+
+    // is the packed cell an objective in the loot field?
+    private static boolean isSource(byte cell) {
+        return (cell & Map.GOLD) != 0;
+    }
+
+    // multi-source breadth-first search from every objective of the field
+    private void build(int[] distance) {
+        Arrays.fill(distance, UNREACHABLE);
+        int tail = 0;
+        for (int index = 0; index < distance.length; index++) {
+            if (this.map.canEnter(index) && isSource(this.map.getCell(index))) {
+                distance[index] = 0;
+                this.queue[tail++] = index;
+            }
+        }
+        this.relax(distance, 0, tail);
+    }
+
+    // A new objective can only make cells closer, so the search spreads out from it
+    // and stops wherever the existing distance is already at least as short
+    private void addSource(int[] distance, int index) {
+        distance[index] = 0;
+        this.queue[0] = index;
+        this.relax(distance, 0, 1);
+    }
+
+    // Removing an objective makes every cell whose shortest paths all led to it further away.
+    // 1. Find those cells: visiting in order of distance, a cell is invalidated if none of its neighbours
+    //    that are still valid is one step closer to an objective.
+    // 2. Restart the search into the invalidated cells from the valid cells bordering them.
+    private void removeSource(int[] distance, int index) {
+
+        this.nextEpoch();
+
+        // 1. Find the invalidated cells, layer by layer outwards from the removed objective.
+        // Invalidated cells are set as UNREACHABLE straight away so they can't support cells further out
+        int invalidatedCount = 0;
+        int head = 0;
+        int tail = 0;
+        this.queue[tail++] = index;
+        this.markEpoch[index] = this.epoch;
+
+        while (head < tail) {
+            int cell = this.queue[head++];
+            // another objective on the same cell, or a neighbour still gives it the same distance
+            if (this.hasSupport(distance, cell)) {
+                continue;
+            }
+            int cellDistance = distance[cell];
+            distance[cell] = UNREACHABLE;
+            this.invalidated[invalidatedCount++] = cell;
+            int row = this.map.getRowOf(cell);
+            int col = this.map.getColOf(cell);
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+                int neighbour = this.getNeighbour(row, col, d);
+                if (neighbour != -1 && this.markEpoch[neighbour] != this.epoch
+                        && distance[neighbour] == cellDistance + 1) {
+                    this.markEpoch[neighbour] = this.epoch;
+                    this.queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        // 2. Seed the search with the best distance each invalidated cell gets from a valid neighbour
+        int seedCount = 0;
+        for (int i = 0; i < invalidatedCount; i++) {
+            int cell = this.invalidated[i];
+            int row = this.map.getRowOf(cell);
+            int col = this.map.getColOf(cell);
+            int best = UNREACHABLE;
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+                int neighbour = this.getNeighbour(row, col, d);
+                if (neighbour != -1 && distance[neighbour] < best) {
+                    best = distance[neighbour];
+                }
+            }
+            if (best != UNREACHABLE) {
+                this.seeds[seedCount++] = ((long) (best + 1) << 32) | cell;
+            }
+        }
+
+        // The seeds start at different distances, so they are sorted and merged with the queue of the search.
+        // Polling whichever of the two is closer keeps the cells in order of distance.
+        Arrays.sort(this.seeds, 0, seedCount);
+        int nextSeed = 0;
+        head = 0;
+        tail = 0;
+        while (nextSeed < seedCount || head < tail) {
+
+            int cell;
+            int cellDistance;
+            if (head == tail || (nextSeed < seedCount
+                    && (int) (this.seeds[nextSeed] >>> 32) <= distance[this.queue[head]])) {
+                cell = (int) this.seeds[nextSeed];
+                cellDistance = (int) (this.seeds[nextSeed] >>> 32);
+                nextSeed++;
+                // already reached through a shorter path
+                if (cellDistance >= distance[cell]) {
+                    continue;
+                }
+                distance[cell] = cellDistance;
+            } else {
+                cell = this.queue[head++];
+                cellDistance = distance[cell];
+            }
+
+            int row = this.map.getRowOf(cell);
+            int col = this.map.getColOf(cell);
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+                int neighbour = this.getNeighbour(row, col, d);
+                if (neighbour != -1 && distance[neighbour] > cellDistance + 1) {
+                    distance[neighbour] = cellDistance + 1;
+                    this.queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    // Does the cell keep its distance without the cells invalidated so far?
+    // It does if it's still an objective or a neighbour is still one step closer
+    private boolean hasSupport(int[] distance, int cell) {
+        if (distance[cell] == 0) {
+            return isSource(this.map.getCell(cell));
+        }
+        int row = this.map.getRowOf(cell);
+        int col = this.map.getColOf(cell);
+        for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+            int neighbour = this.getNeighbour(row, col, d);
+            if (neighbour != -1 && distance[neighbour] == distance[cell] - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Breadth-first search from the cells queue[head..tail), lowering the distance of every cell
+    // that can be reached in fewer steps than it currently has
+    private void relax(int[] distance, int head, int tail) {
+        while (head < tail) {
+            int cell = this.queue[head++];
+            int row = this.map.getRowOf(cell);
+            int col = this.map.getColOf(cell);
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+                int neighbour = this.getNeighbour(row, col, d);
+                if (neighbour != -1 && distance[neighbour] > distance[cell] + 1) {
+                    distance[neighbour] = distance[cell] + 1;
+                    this.queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    // the neighbouring cell in direction d, or -1 if it's out of bounds or a wall
+    private int getNeighbour(int row, int col, int d) {
+        int neighbourRow = row + Map.ROW_OFFSETS[d];
+        int neighbourCol = col + Map.COL_OFFSETS[d];
+        if (neighbourRow < 0 || neighbourRow >= this.rows || neighbourCol < 0 || neighbourCol >= this.columns) {
+            return -1;
+        }
+        int neighbour = neighbourRow * this.columns + neighbourCol;
+        return this.map.canEnter(neighbour) ? neighbour : -1;
+    }
+
+    // moves to the next epoch, only clearing the marks when it overflows
+    private void nextEpoch() {
+        this.epoch++;
+        if (this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.markEpoch, 0);
+            this.epoch = 1;
+        }
+    }
+}
@@ -1,9 +1,28 @@
-import java.util.*;
+import java.nio.*;
 
 public class OmniscientBot extends Bot {
 
-    public OmniscientBot(Map mp, Game g) {
-        super(mp, g);
+    // The shortest path to the human found by the last search is kept and followed while it's still valid,
+    // so the chase only searches again when the human moves off the end of it. When the last search instead
+    // proved the human was further away than the closest exit or gold, that lower bound is kept and
+    // lowered by however far both players have moved since, which together with the Manhattan distance
+    // may prove it again without searching.
+
+    // cells of the cached path to the human, from chasePath[chaseStep] (the bot's tile) to chasePath[chaseEnd]
+    private int[] chasePath = null;
+    private int chaseStep;
+    private int chaseEnd;
+    // the human was at least humanLowerBound moves away when the bot was on boundBot and the human on boundHuman,
+    // or -1 if there is no bound
+    private int humanLowerBound = -1;
+    private int boundBot;
+    private int boundHuman;
+    // turns where the cache decided whether to chase the human without a search, and turns it couldn't
+    private long pathCacheHits = 0;
+    private long pathCacheMisses = 0;
+
+    public OmniscientBot(Map mp, Game g, boolean spawn) {
+        super(mp, g, spawn);
     }
 
     // This bot can see the entire map without looking
@@ -37,9 +56,6 @@ public class OmniscientBot extends Bot {
             return;
         }
 
-        // tiles that are 4-directionally adjacent to the bot's tile that the bot can enter
-        ArrayList<Tile> adjacentTiles = new ArrayList<>();
-
         // try all 4 directions
         for (int[] direction : this.directions) {
 
@@ -47,31 +63,16 @@ public class OmniscientBot extends Bot {
             int candidateRow = row + direction[0];
             int candidateCol = col + direction[1];
 
-            // new position must be within the grid to be a possible candidate
-            if (map.isOutOfBounds(candidateRow, candidateCol)) {
-                continue;
-            }
-
-            // fetch the tile
-            Tile candidateTile = map.getTile(candidateRow, candidateCol);
-
-            // check it's not a wall tile
-            if (!candidateTile.canEnter()) {
-                continue;
-            }
-
             // 1. human is adjacent, bot catches the human => LOSE
             // I want this to be prioritised over (2. Picking up gold)
             // since the bot can win faster by catching the human
-            if (candidateTile.hasHuman()) {
+            if (map.playerCanMoveTo(candidateRow, candidateCol)
+                    && map.getTile(candidateRow, candidateCol).hasHuman()) {
                 // attempt to move to the row, col of the adjacent tile with the human
                 this.moveToTile(candidateRow, candidateCol);
                 // end turn
                 return;
             }
-
-            // candidate tile now passed all checks and becomes part of adjacent tiles
-            adjacentTiles.add(candidateTile);
         }
 
         // 2. If the current tile has gold AND the bot does not have enough gold to win => Pickup
@@ -89,96 +90,142 @@ public class OmniscientBot extends Bot {
         //  Human:
         //      chase human
 
-        // credits to this discussion: https://stackoverflow.com/q/39266903
-        // I used this, my own knowledge of Dijkstra's priority queue implementation in Python
-        // and the docs https://docs.oracle.com/javase/8/docs/api/java/util/PriorityQueue.html
-
-        // 1. The priority queue will keep extending potential paths from the first nodes.
-        // 2. It will stop when it finds a path to one of its objectives.
-        // 3. This path will have the shortest distance (greedy property of Dijkstra's) from the bot's stationary position.
-        // 4. The OmniscientBot will then immediately act on that path by moving to the first tile of the path.
-
-        // The comparator is used to order the elements in the queue
-        PriorityQueue<TileNode> minHeap = new PriorityQueue<>(new TileNodeComparator());
-
-        // stores tiles that have been visited to avoid an infinite loop when exploring
-        HashSet<TileNode> visited = new HashSet<>();
-
-        // Add the initial bot's tile to the visit set, so that it isn't searched unnecessarily
-        visited.add(new TileNode(initialTile, 0, null));
-
-        // initialise the minHeap with nodes created from the tiles (TileNodes) which are adjacent to the bot.
-        // Each TileNode will form a path leading from the bot to a potential objective
-        for (Tile startingTile : adjacentTiles) {
-            // Add each adjacent tile to the minHeap as a TileNode with:
-            // 1. the tile it represents
-            // 2. distance away is 1 since tiles are adjacent
-            // 3. the parent node as null since these are the starting nodes
-            TileNode tileNode = new TileNode(startingTile, 1, null);
-            // add each TileNode created from adjacent tiles to the minHeap
-            minHeap.add(tileNode);
+        // The map keeps a distance field to the closest exit and gold of every cell, which is updated
+        // incrementally as gold is picked up and spawned, so the shortest path to them never needs searching.
+        // The bot's own tile can never be the objective here, since the cases above already handled it.
+        int index = map.getIndex(row, col);
+        ObjectiveField objectiveField = map.getObjectiveField();
+        int objectiveDistance = objectiveField.getDistance(index, this.hasEnoughGoldToWin());
+
+        // The human moves every turn so it's chased with an A* search aimed straight at it, which only has to
+        // find a path at most as long as the one to the closest exit or gold. Catching the human wins faster,
+        // so it's chased when it's no further away than the other objective
+        Tile humanTile = this.getGame().getHuman().getTile();
+        int human = map.getIndex(humanTile.getRow(), humanTile.getCol());
+        PathFinder pathFinder = map.getPathFinder();
+
+        // 4. Immediately execute the first move of the path to that objective
+        int firstStep = this.getCachedChaseStep(index, human, objectiveDistance);
+        if (firstStep == CHASE_UNKNOWN) {
+            this.pathCacheMisses++;
+            firstStep = this.searchChaseStep(index, human, objectiveDistance);
+        } else {
+            this.pathCacheHits++;
+        }
+        if (firstStep == NO_CHASE) {
+            // the step downhill in the field
+            firstStep = objectiveField.getNextStep(index, this.hasEnoughGoldToWin());
         }
 
-        // 3. Search for the closest objective
-        while (!minHeap.isEmpty()) {
+        // no objective can be reached, the bot waits
+        if (firstStep == -1) {
+            return;
+        }
 
-            // Greedy property of Dijkstra's algorithm: each tileNode polled from the minHeap has
-            // the shortest distance from the stationary bot (See TileNodeComparator)
-            TileNode tileNode = minHeap.poll();
+        this.moveToTile(map.getRowOf(firstStep), map.getColOf(firstStep));
+    }
 
-            // only visit new nodes to avoid an infinite loop when exploring
-            if (visited.contains(tileNode)) {
-                continue;
-            }
+    // what getCachedChaseStep and searchChaseStep return instead of a cell
+    // the human is further than the other objective, so it isn't chased
+    private static final int NO_CHASE = -2;
+    // the cache can't tell, a search is needed
+    private static final int CHASE_UNKNOWN = -3;
 
-            // add polled tileNode to visit set
-            visited.add(tileNode);
+    // Decides the chase from the cache. Returns the next cell of the cached path if it still leads to the human
+    // and isn't longer than objectiveDistance, NO_CHASE if the lower bound proves the human is too far away,
+    // or CHASE_UNKNOWN
+    private int getCachedChaseStep(int bot, int human, int objectiveDistance) {
 
-            // attributes of the polled tileNode
-            Tile tile = tileNode.getTile();
-            int distanceFromBot = tileNode.getDistanceFromBot();
+        Map map = this.getMap();
 
-            // If one of the objectives is found while expanding paths, stop searching and take that path
-            if (this.isCurrentObjective(tile)) {
+        // 1. The cached path is still shortest if the bot is on it and the human is still at its end,
+        // or stepped back along it towards the bot
+        if (this.chasePath != null) {
+            int[] path = this.chasePath;
+            if (path[this.chaseStep] == bot && this.chaseEnd - this.chaseStep >= 2) {
+                if (path[this.chaseEnd - 1] == human) {
+                    this.chaseEnd--;
+                }
+                // no closer exit or gold appeared
+                if (path[this.chaseEnd] == human && this.chaseEnd - this.chaseStep <= objectiveDistance) {
+                    this.chaseStep++;
+                    return path[this.chaseStep];
+                }
+            }
+            this.chasePath = null;
+        }
 
-                // Get the first tile of the shortest path to the nearest objective
-                Tile firstTileOfPath = tileNode.getFirstTileOfPath();
-                // 4. Immediately execute the first move of the path to that objective
-                this.moveToTile(firstTileOfPath.getRow(), firstTileOfPath.getCol());
-                // end the turn
-                return;
+        // 2. No path is shorter than the Manhattan distance, and each player moving one tile
+        // can only bring them one move closer together than the last bound
+        int lowerBound = Math.abs(map.getRowOf(bot) - map.getRowOf(human)) + Math.abs(map.getColOf(bot) - map.getColOf(human));
+        if (this.humanLowerBound != -1) {
+            int botMoves = this.getMoves(this.boundBot, bot);
+            int humanMoves = this.getMoves(this.boundHuman, human);
+            if (botMoves != -1 && humanMoves != -1) {
+                lowerBound = Math.max(lowerBound, this.humanLowerBound - botMoves - humanMoves);
             }
+            this.humanLowerBound = -1;
+        }
+        if (lowerBound > objectiveDistance) {
+            this.setLowerBound(lowerBound, bot, human);
+            return NO_CHASE;
+        }
+        return CHASE_UNKNOWN;
+    }
 
-            // Otherwise, explore neighbouring tiles of the polled tileNode
-            int tileRow = tile.getRow();
-            int tileColumn = tile.getCol();
+    // Searches for a path to the human no longer than objectiveDistance and caches what it found.
+    // Returns the first cell of the path or NO_CHASE if there is no such path
+    private int searchChaseStep(int bot, int human, int objectiveDistance) {
 
-            // try all 4 directions
-            for (int[] direction : this.directions) {
+        Map map = this.getMap();
+        PathFinder pathFinder = map.getPathFinder();
+
+        if (pathFinder.findPathTo(bot, human, objectiveDistance) != -1) {
+            // hierarchical searches only know the first step, so there is nothing to cache
+            this.chasePath = pathFinder.getPath(human);
+            if (this.chasePath != null) {
+                this.chaseStep = 1;
+                this.chaseEnd = this.chasePath.length - 1;
+            }
+            return pathFinder.getFirstStep(human);
+        }
 
-                // get position of neighbouring tiles to search next,
-                // based off the path head node's current position
-                int neighbourTileRow = tileRow + direction[0];
-                int neighbourTileColumn = tileColumn + direction[1];
+        // only an exact search proves that there is no path this short,
+        // a hierarchical search could have missed one
+        if (map.getPathSearch() != PathSearch.HIERARCHICAL && objectiveDistance != ObjectiveField.UNREACHABLE) {
+            this.setLowerBound(objectiveDistance + 1, bot, human);
+        }
+        return NO_CHASE;
+    }
 
-                if (map.isOutOfBounds(neighbourTileRow, neighbourTileColumn)) {
-                    continue;
-                }
+    private void setLowerBound(int lowerBound, int bot, int human) {
+        this.humanLowerBound = lowerBound;
+        this.boundBot = bot;
+        this.boundHuman = human;
+    }
 
-                Tile neighbourTile = map.getTile(neighbourTileRow, neighbourTileColumn);
+    // Goes back to a snapshot of the game (see GameSnapshot). The cached path and bound only hold for the
+    // moves since they were found, so they are forgotten and the next turn searches again
+    void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        this.chasePath = null;
+        this.humanLowerBound = -1;
+    }
 
-                // neighbouring tile is a wall tile, cannot explore
-                if (!neighbourTile.canEnter()) {
-                    continue;
-                }
+    // moves needed between two cells at most one move apart, or -1 if they are further apart
+    private int getMoves(int from, int to) {
+        Map map = this.getMap();
+        int distance = Math.abs(map.getRowOf(from) - map.getRowOf(to)) + Math.abs(map.getColOf(from) - map.getColOf(to));
+        return distance <= 1 ? distance : -1;
+    }
 
-                // The neighbouring tile passed all checks
-                // Add it to the minHeap as a TileNode with:
-                // 1. the tile it represents
-                // 2. distance has increased by 1,
-                // 3. the parent is the old polled TileNode
-                minHeap.add(new TileNode(neighbourTile, distanceFromBot + 1, tileNode));
-            }
-        }
+    // turns where the cache decided the chase without searching
+    public long getPathCacheHits() {
+        return this.pathCacheHits;
+    }
+
+    // turns where a search for the human was needed
+    public long getPathCacheMisses() {
+        return this.pathCacheMisses;
     }
 }
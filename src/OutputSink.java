@@ -0,0 +1,42 @@
+// Where a game reports what happens to the player. Events are typed rather than text, so that a sink
+// nobody reads (NullSink) does nothing at all and headless games never format a single message.
+// ConsoleSink prints them as the game always has, AsyncSink formats them into a buffer that a background
+// thread writes out. Each game has its own sink, so games played at once never share a stream
+public interface OutputSink {
+
+    // free text of an interactive game, e.g. menus and descriptions, printed on a line of its own
+    void message(String text);
+
+    // text the user answers on the same line, e.g. "Select a difficulty by entering the index: "
+    void prompt(String text);
+
+    // the human's turn starts and its command is read
+    void humanTurn();
+
+    // the bot's turn starts
+    void botTurn();
+
+    // the answer to the hello command
+    void goldToWin(int gold);
+
+    // the answer to the gold command
+    void goldOwned(int gold);
+
+    // a player tried to move, successful or not
+    void moved(boolean success);
+
+    // a player tried to pick up gold, successful or not, and now owns this much gold
+    void pickedUp(boolean success, int gold);
+
+    // the human's command was not understood, so its turn is skipped
+    void invalidCommand();
+
+    // a player looked at the 5x5 grid centered on (rowCenter, colCenter)
+    void look(Map map, int rowCenter, int colCenter);
+
+    // the game ended
+    void gameOver(GameResult result);
+
+    // writes out everything reported so far, called when the sink is no longer used
+    void close();
+}
@@ -0,0 +1,686 @@
+import java.util.*;
+
+public class PathFinder {
+
+    // Every move between two tiles costs 1, so the shortest path to the closest objective can be found
+    // with a breadth-first search instead of Dijkstra's priority queue. All the memory this engine needs
+    // is allocated once, sized to the map, so searching allocates nothing after the first turn.
+    // Searches towards known cells use A* instead: searches for gold or exits over the whole map are steered
+    // towards the closest ones by Manhattan distance (see GoalIndex), and the human is chased either with
+    // A* or, on maps that select them, with Jump Point Search, which skips over open floor in straight lines,
+    // or with a hierarchical search over clusters of the map (see ClusterGraph), or with a breadth-first
+    // search from both ends that meets in the middle.
+    // Every search first checks the connected region of the start (see ComponentIndex), so a search for
+    // something walled off from it returns at once instead of exploring the whole region.
+
+    // the directions of Map.ROW_OFFSETS that move along a row, and the direction of the start of a jump point search
+    private static final int EAST = 0;
+    private static final int WEST = 1;
+    private static final byte ANY_DIRECTION = -1;
+
+    private final Map map;
+    // queue of cell indexes waiting to be explored. Each cell is queued at most once per search,
+    // so the buffer is the size of the grid and the head never catches up with the tail
+    private final int[] queue;
+    // the cell each cell was reached from in the current search
+    private final int[] parent;
+    // a cell has been visited in the current search if its epoch matches the current epoch,
+    // which avoids clearing the visited array before every search
+    private final int[] visitedEpoch;
+    private int epoch = 0;
+    // the cell the current search started from
+    private int start = -1;
+
+    // number of closest goals by Manhattan distance a goal-directed search is steered towards
+    private static final int CANDIDATES = 8;
+    private final int[] candidates = new int[CANDIDATES];
+    private final int[] candidateDistances = new int[CANDIDATES];
+    private final int[] candidateRows = new int[CANDIDATES];
+    private final int[] candidateCols = new int[CANDIDATES];
+    // memory only needed by goal-directed searches, allocated by the first one
+    // length of the shortest path found so far to each visited cell
+    private int[] distance;
+    // a cell's shortest path is final if its epoch matches the current epoch
+    private int[] closedEpoch;
+    // cells waiting to be explored, ordered by (estimated path length << 32 | Manhattan distance left)
+    private MinHeap open;
+    // direction each jump point was reached in, only needed by jump point searches
+    private byte[] jumpDirection;
+    // first step of the last search when it doesn't link the cells of its path (see ClusterGraph), or -1
+    private int knownFirstStep = -1;
+    // memory only needed by bidirectional searches, allocated by the first one: the search backwards
+    // from the target has its own queue, visited epochs and parents, which point towards the target
+    private int[] backwardQueue;
+    private int[] backwardEpoch;
+    private int[] backwardParent;
+
+    public PathFinder(Map map) {
+        this.map = map;
+        int cellCount = map.getCellCount();
+        this.queue = new int[cellCount];
+        this.parent = new int[cellCount];
+        this.visitedEpoch = new int[cellCount];
+    }
+
+    // Searches outwards from the start cell for the closest objective of a bot, tested on the packed cells:
+    //  exit (the bot must have enough gold): go to exit
+    //  gold (the bot must have less gold than needed to win): go loot gold
+    //  human: chase human
+    // lookRadius limits the search to the square of that radius centered on start, or is negative for the
+    // whole map. Returns the index of the objective found, or -1 if there is no objective that can be reached
+    public int findNearestObjective(int start, boolean botHasEnoughGold, int lookRadius) {
+        ComponentIndex components = this.map.getComponentIndex();
+        int component = components.getComponent(start);
+        int objectives = components.getCount(ComponentIndex.HUMAN, component)
+                + components.getCount(botHasEnoughGold ? ComponentIndex.EXIT : ComponentIndex.GOLD, component);
+        // no objective the bot can reach, no need to search at all
+        if (objectives == 0) {
+            this.beginSearch(start);
+            return -1;
+        }
+        if (botHasEnoughGold) {
+            // exit or human
+            return this.search(start, lookRadius, Map.HUMAN, true);
+        }
+        // gold or human
+        return this.search(start, lookRadius, (byte) (Map.GOLD | Map.HUMAN), false);
+    }
+
+    // Searches the whole map from the start cell for the closest tile a human needs to go to:
+    // an exit once they have enough gold to win, otherwise gold. Returns -1 if none can be reached
+    public int findNearestGoal(int start, boolean humanHasEnoughGold) {
+
+        byte flags = humanHasEnoughGold ? 0 : Map.GOLD;
+        GoalIndex goalIndex = this.map.getGoalIndex();
+        int kind = humanHasEnoughGold ? GoalIndex.EXIT : GoalIndex.GOLD;
+        ComponentIndex components = this.map.getComponentIndex();
+        int component = components.getComponent(start);
+
+        // nothing the human can reach to go to, no need to search at all
+        if (components.getCount(humanHasEnoughGold ? ComponentIndex.EXIT : ComponentIndex.GOLD, component) == 0) {
+            this.beginSearch(start);
+            return -1;
+        }
+
+        // the closest goals by Manhattan distance, any other goal is at least as far as the last of them
+        int found = goalIndex.findNearest(kind, this.map.getRowOf(start), this.map.getColOf(start),
+                CANDIDATES, this.candidates, this.candidateDistances);
+        int lastDistance = this.candidateDistances[found - 1];
+
+        // goals the human can't reach would steer the search into walls, so only the reachable ones are kept
+        int reachable = 0;
+        for (int i = 0; i < found; i++) {
+            if (components.getComponent(this.candidates[i]) == component) {
+                this.candidates[reachable] = this.candidates[i];
+                this.candidateDistances[reachable] = this.candidateDistances[i];
+                reachable++;
+            }
+        }
+        if (reachable == 0) {
+            return this.search(start, -1, flags, humanHasEnoughGold);
+        }
+        int goal = this.searchTowards(start, -1, flags, humanHasEnoughGold, reachable, Integer.MAX_VALUE);
+
+        // The goal found is the closest unless a goal that wasn't a candidate could still be closer,
+        // which can only happen when the path is longer than the Manhattan distance to the last candidate
+        if (goal == -1 || found < CANDIDATES || goalIndex.getCount(kind) == found
+                || this.distance[goal] <= lastDistance) {
+            return goal;
+        }
+        return this.search(start, -1, flags, humanHasEnoughGold);
+    }
+
+    // A* search for the shortest path from the start cell to the target cell, used to chase the human.
+    // Only paths of at most maxLength are searched, anything longer is pruned as soon as its estimated
+    // length is too long. Returns the target, or -1 if it can't be reached within maxLength
+    public int findPathTo(int start, int target, int maxLength) {
+        // walled off from the start, no path of any length
+        if (!this.map.getComponentIndex().isConnected(start, target)) {
+            this.beginSearch(start);
+            return -1;
+        }
+        PathSearch pathSearch = this.map.getPathSearch();
+        if (pathSearch == PathSearch.JUMP_POINT) {
+            return this.jumpPointSearch(start, target, maxLength);
+        }
+        if (pathSearch == PathSearch.BIDIRECTIONAL) {
+            return this.bidirectionalSearch(start, target, maxLength);
+        }
+        // Hierarchical search only between clusters, within a cluster A* is quick enough and exact.
+        // The path it finds is close to the shortest, and only its first step is known
+        if (pathSearch == PathSearch.HIERARCHICAL) {
+            ClusterGraph clusterGraph = this.map.getClusterGraph();
+            if (clusterGraph.getCluster(start) != clusterGraph.getCluster(target)) {
+                this.beginSearch(start);
+                this.knownFirstStep = clusterGraph.findFirstStep(start, target, maxLength);
+                return this.knownFirstStep == -1 ? -1 : target;
+            }
+        }
+        this.candidates[0] = target;
+        return this.searchTowards(start, target, (byte) 0, false, 1, maxLength);
+    }
+
+    // A* search from the start cell for the target cell, or the closest cell that has any of the flags set,
+    // or is an exit if exits are wanted. The heuristic is the Manhattan distance to the closest of the
+    // candidates, which never overestimates the path to them, so the first candidate reached is the closest.
+    // Any other goal reached on the way is returned as well since it can't be further than the closest
+    // candidate. Paths whose estimated length is longer than maxLength are pruned.
+    // Returns the index of the cell found, or -1 if none can be reached
+    private int searchTowards(int start, int target, byte flags, boolean exits, int candidateCount, int maxLength) {
+
+        Map map = this.map;
+        int rows = map.getRows();
+        int columns = map.getColumns();
+
+        this.allocateSearchMemory();
+        for (int i = 0; i < candidateCount; i++) {
+            this.candidateRows[i] = map.getRowOf(this.candidates[i]);
+            this.candidateCols[i] = map.getColOf(this.candidates[i]);
+        }
+
+        this.beginSearch(start);
+        MinHeap open = this.open;
+        open.clear();
+        this.distance[start] = 0;
+        int startEstimate = this.estimate(map.getRowOf(start), map.getColOf(start), candidateCount);
+        if (startEstimate > maxLength) {
+            return -1;
+        }
+        open.push(MinHeap.pack(startEstimate, startEstimate), start);
+
+        while (!open.isEmpty()) {
+
+            int index = open.pop();
+            // a cell can be queued again with a shorter path, only the first time it's polled counts
+            if (this.closedEpoch[index] == this.epoch) {
+                continue;
+            }
+            this.closedEpoch[index] = this.epoch;
+
+            byte cell = map.getCell(index);
+            if (index == target || (cell & flags) != 0 || (exits && (cell & Map.TERRAIN_MASK) == Map.EXIT)) {
+                return index;
+            }
+
+            int row = map.getRowOf(index);
+            int col = map.getColOf(index);
+            int neighbourDistance = this.distance[index] + 1;
+
+            // explore neighbouring cells
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+
+                int neighbourRow = row + Map.ROW_OFFSETS[d];
+                int neighbourCol = col + Map.COL_OFFSETS[d];
+
+                if (neighbourRow < 0 || neighbourRow >= rows || neighbourCol < 0 || neighbourCol >= columns) {
+                    continue;
+                }
+
+                int neighbour = index + Map.ROW_OFFSETS[d] * columns + Map.COL_OFFSETS[d];
+
+                // a wall, or already reached by a path at least as short
+                if (!map.canEnter(neighbour) || (this.visitedEpoch[neighbour] == this.epoch
+                        && this.distance[neighbour] <= neighbourDistance)) {
+                    continue;
+                }
+
+                this.visitedEpoch[neighbour] = this.epoch;
+                this.distance[neighbour] = neighbourDistance;
+                this.parent[neighbour] = index;
+                int remaining = this.estimate(neighbourRow, neighbourCol, candidateCount);
+                // the path through this cell can't be short enough
+                if (remaining > maxLength - neighbourDistance) {
+                    continue;
+                }
+                open.push(MinHeap.pack(neighbourDistance + remaining, remaining), neighbour);
+            }
+        }
+
+        // every reachable cell was searched without finding a goal
+        return -1;
+    }
+
+    // Jump Point Search from the start cell to the target cell, an A* search that only queues the cells
+    // where a shortest path may have to turn (jump points), so on open floor it jumps over whole rows and
+    // columns of cells that A* would queue one by one. Among shortest paths of the same length, ones that move
+    // along a column before moving along a row are preferred, so:
+    //  after moving along a row, the path only turns where the cell beside it was blocked the step before
+    //  after moving along a column, the path may turn either way along a row at any step
+    // Paths whose estimated length is longer than maxLength are pruned.
+    // Returns the target, or -1 if it can't be reached within maxLength
+    private int jumpPointSearch(int start, int target, int maxLength) {
+
+        Map map = this.map;
+        int targetRow = map.getRowOf(target);
+        int targetCol = map.getColOf(target);
+
+        this.allocateSearchMemory();
+        if (this.jumpDirection == null) {
+            this.jumpDirection = new byte[map.getCellCount()];
+        }
+
+        this.beginSearch(start);
+        MinHeap open = this.open;
+        open.clear();
+        this.distance[start] = 0;
+        this.jumpDirection[start] = ANY_DIRECTION;
+        int startEstimate = Math.abs(map.getRowOf(start) - targetRow) + Math.abs(map.getColOf(start) - targetCol);
+        if (startEstimate > maxLength) {
+            return -1;
+        }
+        open.push(MinHeap.pack(startEstimate, startEstimate), start);
+
+        while (!open.isEmpty()) {
+
+            int index = open.pop();
+            // a cell can be queued again with a shorter path, only the first time it's polled counts
+            if (this.closedEpoch[index] == this.epoch) {
+                continue;
+            }
+            this.closedEpoch[index] = this.epoch;
+
+            if (index == target) {
+                return index;
+            }
+
+            int row = map.getRowOf(index);
+            int col = map.getColOf(index);
+            byte arrivedIn = this.jumpDirection[index];
+
+            for (byte d = 0; d < Map.ROW_OFFSETS.length; d++) {
+
+                if (!this.isJumpDirection(index, arrivedIn, d)) {
+                    continue;
+                }
+
+                int jumpPoint = Map.ROW_OFFSETS[d] == 0
+                        ? this.jumpAlongRow(index, d, target)
+                        : this.jumpAlongColumn(index, d, target);
+                if (jumpPoint == -1) {
+                    continue;
+                }
+
+                int jumpRow = map.getRowOf(jumpPoint);
+                int jumpCol = map.getColOf(jumpPoint);
+                // jumps are straight lines, so their length is the Manhattan distance between the two cells
+                int jumpDistance = this.distance[index] + Math.abs(jumpRow - row) + Math.abs(jumpCol - col);
+
+                // already reached by a path at least as short
+                if (this.visitedEpoch[jumpPoint] == this.epoch && this.distance[jumpPoint] <= jumpDistance) {
+                    continue;
+                }
+
+                int remaining = Math.abs(jumpRow - targetRow) + Math.abs(jumpCol - targetCol);
+                // the path through this cell can't be short enough
+                if (remaining > maxLength - jumpDistance) {
+                    continue;
+                }
+
+                this.visitedEpoch[jumpPoint] = this.epoch;
+                this.distance[jumpPoint] = jumpDistance;
+                this.parent[jumpPoint] = index;
+                this.jumpDirection[jumpPoint] = d;
+                open.push(MinHeap.pack(jumpDistance + remaining, remaining), jumpPoint);
+            }
+        }
+
+        // the target can't be reached within maxLength
+        return -1;
+    }
+
+    // Breadth-first search from both the start cell and the target cell until the two searches meet.
+    // Each search covers a circle of about half the radius of a single search, so together they explore
+    // around half as many tiles on open floor and far fewer when the area grows faster with distance.
+    // Whole levels are expanded at a time, always on the side with the smaller frontier, and the shortest
+    // path through any cell where they met during that level is kept, which makes the path found a shortest
+    // one. Once the levels searched on both sides add up to maxLength without meeting, every path is longer.
+    // The parents of the backward half are reversed into the forward ones, so getFirstStep and getPath
+    // work as after any other search. Returns the target, or -1 if it can't be reached within maxLength
+    private int bidirectionalSearch(int start, int target, int maxLength) {
+
+        Map map = this.map;
+        int rows = map.getRows();
+        int columns = map.getColumns();
+
+        if (this.backwardQueue == null) {
+            this.backwardQueue = new int[map.getCellCount()];
+            this.backwardEpoch = new int[map.getCellCount()];
+            this.backwardParent = new int[map.getCellCount()];
+        }
+
+        this.beginSearch(start);
+        if (start == target) {
+            return target;
+        }
+        int epoch = this.epoch;
+        int[] forwardQueue = this.queue;
+        int[] backwardQueue = this.backwardQueue;
+        int[] forwardEpoch = this.visitedEpoch;
+        int[] backwardEpoch = this.backwardEpoch;
+        backwardEpoch[target] = epoch;
+
+        // each queue holds its whole search, the frontier being [levelStart, tail)
+        int forwardLevelStart = 0;
+        int forwardTail = 0;
+        int backwardLevelStart = 0;
+        int backwardTail = 0;
+        forwardQueue[forwardTail++] = start;
+        backwardQueue[backwardTail++] = target;
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+
+        // the levels searched on both sides add up to the length of the shortest path through any new meeting
+        while (forwardDepth + backwardDepth < maxLength
+                && forwardLevelStart < forwardTail && backwardLevelStart < backwardTail) {
+
+            boolean forward = forwardTail - forwardLevelStart <= backwardTail - backwardLevelStart;
+            int[] queue = forward ? forwardQueue : backwardQueue;
+            int[] ownEpoch = forward ? forwardEpoch : backwardEpoch;
+            int[] otherEpoch = forward ? backwardEpoch : forwardEpoch;
+            int[] parent = forward ? this.parent : this.backwardParent;
+            int head = forward ? forwardLevelStart : backwardLevelStart;
+            int levelEnd = forward ? forwardTail : backwardTail;
+            int tail = levelEnd;
+            // the cell met on the other side and the cell it was met from, or -1 if they haven't met
+            int meeting = -1;
+            int meetingFrom = -1;
+
+            for (; head < levelEnd; head++) {
+
+                int index = queue[head];
+                int row = map.getRowOf(index);
+                int col = map.getColOf(index);
+
+                // explore neighbouring cells
+                for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+
+                    int neighbourRow = row + Map.ROW_OFFSETS[d];
+                    int neighbourCol = col + Map.COL_OFFSETS[d];
+
+                    if (neighbourRow < 0 || neighbourRow >= rows || neighbourCol < 0 || neighbourCol >= columns) {
+                        continue;
+                    }
+
+                    int neighbour = index + Map.ROW_OFFSETS[d] * columns + Map.COL_OFFSETS[d];
+
+                    // Every cell of the other side's frontier is the same distance from its end, and any cell
+                    // it reached earlier would have met this side on an earlier level, so the first meeting
+                    // of this level is as short as any other
+                    if (otherEpoch[neighbour] == epoch) {
+                        if (meeting == -1) {
+                            meeting = neighbour;
+                            meetingFrom = index;
+                        }
+                        continue;
+                    }
+
+                    // already queued or a wall, cannot explore
+                    if (ownEpoch[neighbour] == epoch || !map.canEnter(neighbour)) {
+                        continue;
+                    }
+
+                    ownEpoch[neighbour] = epoch;
+                    parent[neighbour] = index;
+                    queue[tail++] = neighbour;
+                }
+            }
+
+            if (meeting != -1) {
+                // link the whole path through the forward parents, from the target back to the start
+                int previous = forward ? meetingFrom : meeting;
+                int index = forward ? meeting : meetingFrom;
+                while (true) {
+                    int next = index == target ? -1 : this.backwardParent[index];
+                    this.parent[index] = previous;
+                    if (next == -1) {
+                        break;
+                    }
+                    previous = index;
+                    index = next;
+                }
+                return target;
+            }
+
+            if (forward) {
+                forwardLevelStart = levelEnd;
+                forwardTail = tail;
+                forwardDepth++;
+            } else {
+                backwardLevelStart = levelEnd;
+                backwardTail = tail;
+                backwardDepth++;
+            }
+        }
+
+        // the searches didn't meet within maxLength, or one of them ran out of cells
+        return -1;
+    }
+
+    // Can the path continue in direction d from the jump point at this index, which it arrived at in arrivedIn?
+    private boolean isJumpDirection(int index, byte arrivedIn, byte d) {
+        if (arrivedIn == ANY_DIRECTION) {
+            return true;
+        }
+        // never straight back
+        if (Map.ROW_OFFSETS[d] == -Map.ROW_OFFSETS[arrivedIn] && Map.COL_OFFSETS[d] == -Map.COL_OFFSETS[arrivedIn]) {
+            return false;
+        }
+        // after moving along a column every other direction is natural
+        if (Map.ROW_OFFSETS[arrivedIn] != 0 || d == arrivedIn) {
+            return true;
+        }
+        // after moving along a row, only turn into a column where the path was forced to
+        return this.isForced(this.map.getRowOf(index), this.map.getColOf(index), Map.COL_OFFSETS[arrivedIn],
+                Map.ROW_OFFSETS[d]);
+    }
+
+    // Moving along a row by colOffset to this position (at row, col), is the path forced to turn rowOffset?
+    // It is if the cell beside this one is open but the cell beside the one before was blocked, since
+    // otherwise turning one step earlier reaches the same cell just as quickly
+    private boolean isForced(int row, int col, int colOffset, int rowOffset) {
+        return this.isOpen(row + rowOffset, col) && !this.isOpen(row + rowOffset, col - colOffset);
+    }
+
+    // can a player enter the cell at this position (at row, col), which may be out of bounds?
+    private boolean isOpen(int row, int col) {
+        return row >= 0 && row < this.map.getRows() && col >= 0 && col < this.map.getColumns()
+                && this.map.canEnter(this.map.getIndex(row, col));
+    }
+
+    // Moves along the row from the cell at this index in direction d until it reaches the target or a cell
+    // where the path is forced to turn, which is returned as the next jump point, or a wall, which returns -1
+    private int jumpAlongRow(int index, byte d, int target) {
+        int row = this.map.getRowOf(index);
+        int col = this.map.getColOf(index);
+        int colOffset = Map.COL_OFFSETS[d];
+        while (true) {
+            col += colOffset;
+            index += colOffset;
+            if (!this.isOpen(row, col)) {
+                return -1;
+            }
+            if (index == target || this.isForced(row, col, colOffset, 1) || this.isForced(row, col, colOffset, -1)) {
+                return index;
+            }
+        }
+    }
+
+    // Moves along the column from the cell at this index in direction d until it reaches the target or a cell
+    // from which a jump along the row finds a jump point, which is returned as the next jump point,
+    // or a wall, which returns -1
+    private int jumpAlongColumn(int index, byte d, int target) {
+        int row = this.map.getRowOf(index);
+        int col = this.map.getColOf(index);
+        int rowOffset = Map.ROW_OFFSETS[d];
+        int columns = this.map.getColumns();
+        while (true) {
+            row += rowOffset;
+            index += rowOffset * columns;
+            if (!this.isOpen(row, col)) {
+                return -1;
+            }
+            if (index == target || this.jumpAlongRow(index, (byte) EAST, target) != -1
+                    || this.jumpAlongRow(index, (byte) WEST, target) != -1) {
+                return index;
+            }
+        }
+    }
+
+    // allocates the memory only needed by A* and jump point searches, the first time one runs
+    private void allocateSearchMemory() {
+        if (this.open == null) {
+            this.distance = new int[this.map.getCellCount()];
+            this.closedEpoch = new int[this.map.getCellCount()];
+            this.open = new MinHeap(1024);
+        }
+    }
+
+    // Manhattan distance from this position (at row, col) to the closest candidate
+    private int estimate(int row, int col, int candidateCount) {
+        int closest = Integer.MAX_VALUE;
+        for (int i = 0; i < candidateCount; i++) {
+            int distance = Math.abs(this.candidateRows[i] - row) + Math.abs(this.candidateCols[i] - col);
+            if (distance < closest) {
+                closest = distance;
+            }
+        }
+        return closest;
+    }
+
+    // Breadth-first search from the start cell for the closest cell that has any of the flags set,
+    // or is an exit if exits are wanted. Returns the index of the cell found, or -1
+    private int search(int start, int lookRadius, byte flags, boolean exits) {
+
+        Map map = this.map;
+        int rows = map.getRows();
+        int columns = map.getColumns();
+        int startRow = map.getRowOf(start);
+        int startCol = map.getColOf(start);
+
+        this.beginSearch(start);
+        int head = 0;
+        int tail = 0;
+        this.queue[tail++] = start;
+
+        while (head < tail) {
+
+            // cells are polled in order of distance from the start, so the first objective is the closest
+            int index = this.queue[head++];
+            byte cell = map.getCell(index);
+            if ((cell & flags) != 0 || (exits && (cell & Map.TERRAIN_MASK) == Map.EXIT)) {
+                return index;
+            }
+
+            int row = map.getRowOf(index);
+            int col = map.getColOf(index);
+
+            // explore neighbouring cells
+            for (int d = 0; d < Map.ROW_OFFSETS.length; d++) {
+
+                int neighbourRow = row + Map.ROW_OFFSETS[d];
+                int neighbourCol = col + Map.COL_OFFSETS[d];
+
+                if (neighbourRow < 0 || neighbourRow >= rows || neighbourCol < 0 || neighbourCol >= columns) {
+                    continue;
+                }
+
+                // outside the area the bot is allowed to search
+                if (lookRadius >= 0 && (Math.abs(neighbourRow - startRow) > lookRadius
+                        || Math.abs(neighbourCol - startCol) > lookRadius)) {
+                    continue;
+                }
+
+                int neighbour = index + Map.ROW_OFFSETS[d] * columns + Map.COL_OFFSETS[d];
+
+                // already queued or a wall, cannot explore
+                if (this.visitedEpoch[neighbour] == this.epoch || !map.canEnter(neighbour)) {
+                    continue;
+                }
+
+                this.visitedEpoch[neighbour] = this.epoch;
+                this.parent[neighbour] = index;
+                this.queue[tail++] = neighbour;
+            }
+        }
+
+        // every reachable cell was searched without finding an objective
+        return -1;
+    }
+
+    // Returns the first cell to move to on the path from the start of the last search to the target,
+    // or -1 if the target is the start itself
+    public int getFirstStep(int target) {
+        if (target == this.start) {
+            return -1;
+        }
+        if (this.knownFirstStep != -1) {
+            return this.knownFirstStep;
+        }
+        int index = target;
+        while (this.parent[index] != this.start) {
+            index = this.parent[index];
+        }
+        // Jump point searches link cells that are a straight line apart rather than neighbours,
+        // so the first step is one cell along that line
+        Map map = this.map;
+        int rowStep = Integer.signum(map.getRowOf(index) - map.getRowOf(this.start));
+        int colStep = Integer.signum(map.getColOf(index) - map.getColOf(this.start));
+        return this.start + rowStep * map.getColumns() + colStep;
+    }
+
+    // Returns the cells of the path from the start of the last search to the target, both included,
+    // or null if the last search didn't link the cells of its path (hierarchical searches).
+    // Jump point searches link cells a straight line apart, so the cells in between are filled in
+    public int[] getPath(int target) {
+        if (this.knownFirstStep != -1) {
+            return null;
+        }
+        Map map = this.map;
+        int length = 0;
+        for (int index = target; index != this.start; index = this.parent[index]) {
+            int previous = this.parent[index];
+            length += Math.abs(map.getRowOf(index) - map.getRowOf(previous))
+                    + Math.abs(map.getColOf(index) - map.getColOf(previous));
+        }
+        int[] path = new int[length + 1];
+        int position = length;
+        path[position] = target;
+        for (int index = target; index != this.start; index = this.parent[index]) {
+            int previous = this.parent[index];
+            int step = Integer.signum(map.getRowOf(previous) - map.getRowOf(index)) * map.getColumns()
+                    + Integer.signum(map.getColOf(previous) - map.getColOf(index));
+            for (int cell = index + step; position > 0 && path[position] != previous; cell += step) {
+                path[--position] = cell;
+            }
+        }
+        return path;
+    }
+
+    // Returns the cell the target was reached from in the last search, or -1 for the start.
+    // After a jump point search this is the previous jump point, a straight line away.
+    // Hierarchical searches don't link the cells of their path, only getFirstStep can be used after them
+    public int getParent(int target) {
+        if (target == this.start) {
+            return -1;
+        }
+        return this.parent[target];
+    }
+
+    // starts a new search by moving to the next epoch, only clearing the epoch arrays when it overflows
+    private void beginSearch(int start) {
+        this.epoch++;
+        if (this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.visitedEpoch, 0);
+            if (this.closedEpoch != null) {
+                Arrays.fill(this.closedEpoch, 0);
+            }
+            if (this.backwardEpoch != null) {
+                Arrays.fill(this.backwardEpoch, 0);
+            }
+            this.epoch = 1;
+        }
+        this.start = start;
+        this.knownFirstStep = -1;
+        this.visitedEpoch[start] = this.epoch;
+    }
+}
@@ -0,0 +1,34 @@
+// Which engine chases the human on a map (see PathFinder.findPathTo), selected by the 'search' line
+// of the map file. The ordinal is stored in binary map files, so new engines are only added at the end
+public enum PathSearch {
+    // A* with a Manhattan heuristic, the default
+    A_STAR("astar"),
+    // Jump Point Search, quicker through corridors and rooms
+    JUMP_POINT("jps"),
+    // A* over precomputed clusters of the map (see ClusterGraph), for maps of millions of tiles
+    HIERARCHICAL("hpa"),
+    // breadth-first search from both the bot and the human until they meet, which explores far fewer
+    // tiles than one search over open maps where A* is misled by walls (see PathFinder.bidirectionalSearch)
+    BIDIRECTIONAL("bibfs");
+
+    // how the engine is named on the 'search' line of a map file
+    private final String keyword;
+
+    PathSearch(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public String getKeyword() {
+        return this.keyword;
+    }
+
+    // the engine with this keyword, or null if there is none
+    public static PathSearch fromKeyword(String keyword) {
+        for (PathSearch search : values()) {
+            if (search.keyword.equals(keyword)) {
+                return search;
+            }
+        }
+        return null;
+    }
+}
@@ -1,3 +1,4 @@
+import java.nio.*;
 import java.util.*;
 
 abstract class Player {
@@ -12,24 +13,22 @@ abstract class Player {
     // These attributes become read-only after Player is instantiated
     private final Game game;
     private final Map map;
+    // opcode of the last command the player played (see ReplayLog), reset by the game before every turn
+    private byte lastCommand = ReplayLog.NOTHING;
 
-    public Player(Map map, Game game) {
+    // The player spawns on a random tile if spawn is set. Otherwise it isn't on any tile until its state is read
+    // from a snapshot (see readState), so that a game can be restored on a map with no tile left to spawn on
+    public Player(Map map, Game game, boolean spawn) {
 
         this.map = map; // Player must know the map to spawn in a random location
         this.game = game; // Player must know the game to give the quit command
-        int row;
-        int col;
-        Tile randomTile;
-        Random rand = new Random();
-
-        do {
-            // get a random position in the grid
-            row = rand.nextInt(map.getRows());
-            col = rand.nextInt(map.getColumns());
-            // get the tile from that random position
-            randomTile = map.getTile(row, col);
-            // loop until the player can spawn on this tile
-        } while (randomTile.isNotPlayerSpawnPoint());
+        if (!spawn) {
+            return;
+        }
+        // the map's random number generator is used so that seeding the map also seeds where players spawn.
+        // Only tiles the player can spawn on are picked from, a runtime exception is thrown if there are none
+        int index = map.getSpawnIndex().getRandomPlayerSpawn(map.getRandom());
+        Tile randomTile = map.getTile(map.getRowOf(index), map.getColOf(index));
 
         // initialises the player on the random tile that passed the checks
         this.initialisePlayerOnTile(randomTile);
@@ -68,6 +67,18 @@ abstract class Player {
     // Player attempts to move to the tile at this position (at row, col)
     public void moveToTile(int row, int col) {
 
+        // players only move to adjacent tiles, so the direction is enough to record the move
+        Tile current = this.getTile();
+        if (row < current.getRow()) {
+            this.lastCommand = ReplayLog.MOVE_NORTH;
+        } else if (row > current.getRow()) {
+            this.lastCommand = ReplayLog.MOVE_SOUTH;
+        } else if (col > current.getCol()) {
+            this.lastCommand = ReplayLog.MOVE_EAST;
+        } else {
+            this.lastCommand = ReplayLog.MOVE_WEST;
+        }
+
         // check if the player can move to the proposed new location
         if (this.map.playerCanMoveTo(row, col)) {
 
@@ -80,11 +91,11 @@ abstract class Player {
             // changes the destination tile's information on what player is now there
             this.enterTile(destination);
             // successful move
-            System.out.println("Success");
+            this.getOutput().moved(true);
 
         } else {
             // unsuccessful move
-            System.out.println("Fail");
+            this.getOutput().moved(false);
         }
     }
 
@@ -111,6 +122,8 @@ abstract class Player {
     // Player attempts to pick up gold on the tile
     public void pickup() {
 
+        this.lastCommand = ReplayLog.PICKUP;
+
         // Player's current tile
         Tile tile = this.getTile();
 
@@ -123,34 +136,60 @@ abstract class Player {
             this.map.decrementGoldCount();
             // removes gold from the player's current tile
             tile.removeGold();
-            // successful pickup
-            System.out.print("Success. ");
+            // successful pickup, followed by the new gold
+            this.getOutput().pickedUp(true, this.getGold());
 
         } else {
             // no gold on the tile, failed pickup
-            System.out.print("Fail. ");
+            this.getOutput().pickedUp(false, this.getGold());
         }
-
-        // print new gold after attempted pickup
-        int newGold = this.getGold();
-        System.out.println("Gold owned: " + newGold);
     }
 
     // 4. prints a 5x5 grid with the player at the center
     public void look() {
+        this.lastCommand = ReplayLog.LOOK;
         Tile t = this.getTile();
         int row = t.getRow();
         int col = t.getCol();
-        this.getMap().print5by5center(row, col);
+        this.getOutput().look(this.getMap(), row, col);
     }
 
     // 5. quit
     public void quit() {
+        this.lastCommand = ReplayLog.QUIT;
         this.game.quitGame();
     }
 
+    // bytes writeState writes
+    int getStateLength() {
+        return 4 + 4;
+    }
+
+    // writes the tile and gold of the player to a snapshot of its game (see GameSnapshot)
+    void writeState(ByteBuffer buffer) {
+        buffer.putInt(this.map.getIndex(this.tile.getRow(), this.tile.getCol())).putInt(this.gold);
+    }
+
+    // Goes back to the state written by writeState. The cells of the map are restored first,
+    // so the tile already has the player on it
+    void readState(ByteBuffer buffer) {
+        int index = buffer.getInt();
+        this.setTile(this.map.getTile(this.map.getRowOf(index), this.map.getColOf(index)));
+        this.gold = buffer.getInt();
+    }
+
     // getters/setters
 
+    // opcode of the last command the player played, ReplayLog.NOTHING if none this turn
+    public byte getLastCommand() {
+        return this.lastCommand;
+    }
+
+    // commands that only the human has set their opcode themselves
+    void setLastCommand(byte lastCommand) {
+        this.lastCommand = lastCommand;
+    }
+
     // how much gold does the player have?
     public int getGold() {
         return this.gold;
@@ -169,4 +208,13 @@ abstract class Player {
     public Map getMap() {
         return this.map;
     }
+
+    public Game getGame() {
+        return this.game;
+    }
+
+    // where the responses to the player's commands are reported, shared with the rest of the game
+    public OutputSink getOutput() {
+        return this.game.getOutput();
+    }
 }
@@ -0,0 +1,356 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class Replay {
+
+    // Plays back the games recorded by a ReplayLog, without anyone at the keyboard, in one of three modes:
+    //  check: plays every game again from its seed, the human's commands coming from the recording and the bot
+    //         deciding for itself, and checks that each game plays out exactly as recorded. Each game is timed,
+    //         so that slow games can be profiled and changes to the bots bisected offline
+    //  turn:  fast-forwards one game to a turn by moving the players to their recorded positions and spawning
+    //         the recorded gold, without running the bots at all, then prints the whole map
+    //  watch: fast-forwards one game turn by turn, redrawing only the rows of the map that changed
+    // Games are numbered from one in the order they were recorded.
+
+    // Usage: java -cp out Replay <map file> <replay file> [check | turn <game> <turn> | watch <game> [ms per turn]]
+    // e.g. java -cp out Replay maps/pathfinder2.txt games.replay turn 3 40
+
+    // delay between the turns of a watched game when none is given
+    private static final int DEFAULT_WATCH_MILLIS = 100;
+
+    // offsets of the fields of a game start record (see ReplayLog)
+    private static final int SEED = 1;
+    private static final int MAP_HASH = 9;
+    private static final int DIFFICULTY = 17;
+    private static final int MAX_TURNS = 18;
+    private static final int HUMAN_INDEX = 22;
+    private static final int BOT_INDEX = 26;
+
+    // the map as loaded from the file, every game is played back on its own copy
+    private final Map map;
+    // the whole replay file
+    private final ByteBuffer replay;
+    // offsets in the replay of the start record of every game, and of the end of its last record
+    private final List<Integer> gameStarts = new ArrayList<>();
+    private final List<Integer> gameEnds = new ArrayList<>();
+
+    public Replay(String mapFilePath, String replayFilePath) {
+        this.map = new Map(mapFilePath);
+        // built once here so that every copy of the map shares it instead of building its own
+        this.map.getExitField();
+        try (FileChannel channel = FileChannel.open(Paths.get(replayFilePath), StandardOpenOption.READ)) {
+            this.replay = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the replay file " + replayFilePath + ".");
+        }
+
+        for (byte magic : ReplayLog.MAGIC) {
+            if (!this.replay.hasRemaining() || this.replay.get() != magic) {
+                throw new RuntimeException(replayFilePath + " is not a replay file.");
+            }
+        }
+        if (!this.replay.hasRemaining() || this.replay.get() != ReplayLog.VERSION) {
+            throw new RuntimeException(replayFilePath + " was recorded by another version of the game.");
+        }
+
+        // a game that was cut short (e.g. the program was stopped) ends at its last complete record
+        int offset = this.replay.position();
+        while (offset < this.replay.limit()) {
+            int length = recordLength(this.replay.get(offset));
+            if (offset + length > this.replay.limit()) {
+                break;
+            }
+            if (this.replay.get(offset) == ReplayLog.GAME_START) {
+                this.gameStarts.add(offset);
+                this.gameEnds.add(offset);
+            }
+            offset += length;
+            if (!this.gameEnds.isEmpty()) {
+                this.gameEnds.set(this.gameEnds.size() - 1, offset);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp out Replay <map file> <replay file>"
+                    + " [check | turn <game> <turn> | watch <game> [ms per turn]]");
+            System.exit(1);
+        }
+
+        Replay replay = new Replay(args[0], args[1]);
+        String mode = args.length > 2 ? args[2] : "check";
+        if (mode.equals("check")) {
+            replay.checkAll();
+        } else if (mode.equals("turn") && args.length > 4) {
+            replay.printTurn(Integer.parseInt(args[3]) - 1, Integer.parseInt(args[4]));
+        } else if (mode.equals("watch") && args.length > 3) {
+            replay.watch(Integer.parseInt(args[3]) - 1, args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_WATCH_MILLIS);
+        } else {
+            throw new RuntimeException("Unknown replay mode " + String.join(" ", Arrays.copyOfRange(args, 2, args.length))
+                    + ", expected check, turn <game> <turn> or watch <game> [ms per turn].");
+        }
+    }
+
+    // plays every game again and prints how each ended, how long it took and whether it matched the recording
+    public void checkAll() {
+        int matching = 0;
+        for (int game = 0; game < this.gameStarts.size(); game++) {
+            if (this.check(game)) {
+                matching++;
+            }
+        }
+        System.out.println(matching + " of " + this.gameStarts.size() + " games played out as recorded.");
+    }
+
+    // Plays the game again from its seed, recording it in memory, and compares that record with the replay
+    public boolean check(int game) {
+
+        int start = this.gameStarts.get(game);
+        int end = this.gameEnds.get(game);
+        Map map = this.copyMap(start);
+
+        Game replayed = new Game(map, new RecordedCommands(start + ReplayLog.GAME_START_LENGTH, end),
+                ReplayLog.getDifficulty(this.replay.get(start + DIFFICULTY)), new NullSink());
+        replayed.setMaxTurns(this.replay.getInt(start + MAX_TURNS));
+        ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+        ReplayLog replayLog = new ReplayLog(Channels.newChannel(recorded));
+        replayed.setReplayLog(replayLog);
+
+        long startTime = System.nanoTime();
+        GameResult result = replayed.play();
+        long elapsedMicros = (System.nanoTime() - startTime) / 1000;
+        replayLog.close();
+
+        // the record of the game played again, after the magic and version
+        byte[] bytes = recorded.toByteArray();
+        int offset = ReplayLog.MAGIC.length + 1;
+        int turn = 0;
+        int position = start;
+        while (position < end && offset < bytes.length) {
+            int length = recordLength(this.replay.get(position));
+            if (!this.replay.slice(position, length).equals(ByteBuffer.wrap(bytes, offset, length))) {
+                break;
+            }
+            if (isTurn(this.replay.get(position))) {
+                turn++;
+            }
+            position += length;
+            offset += length;
+        }
+
+        boolean matches = position == end && offset == bytes.length;
+        System.out.printf("Game %d: %s after %d turns, played again in %.3f ms, %s\n", game + 1, result,
+                replayed.getTurns(), elapsedMicros / 1000.0,
+                matches ? "as recorded." : "differs from the recording from turn " + (turn + 1) + ".");
+        return matches;
+    }
+
+    // fast-forwards the game to the turn (or its last turn) and prints the whole map and where the players are
+    public void printTurn(int game, int turn) {
+        FastForward fastForward = new FastForward(game);
+        while (fastForward.turn < turn) {
+            if (!fastForward.next()) {
+                break;
+            }
+        }
+        fastForward.map.print(System.out);
+        fastForward.printStatus();
+    }
+
+    // fast-forwards the game one turn at a time, redrawing the rows of the map that changed after every turn
+    public void watch(int game, int millisPerTurn) {
+        FastForward fastForward = new FastForward(game);
+        MapRenderer renderer = fastForward.map.getRenderer();
+        Map map = fastForward.map;
+        do {
+            renderer.printChanges(0, 0, map.getRows(), map.getColumns(), System.out);
+            // clears the line of the last status first
+            System.out.print("\033[K");
+            fastForward.printStatus();
+            try {
+                Thread.sleep(millisPerTurn);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        } while (fastForward.next());
+    }
+
+    // bytes of the record starting with this opcode
+    private static int recordLength(byte opcode) {
+        if (opcode == ReplayLog.GAME_START) {
+            return ReplayLog.GAME_START_LENGTH;
+        }
+        if (opcode == ReplayLog.GAME_END) {
+            return ReplayLog.GAME_END_LENGTH;
+        }
+        return ReplayLog.TURN_LENGTH;
+    }
+
+    // is the record starting with this opcode a turn of either player?
+    private static boolean isTurn(byte opcode) {
+        return opcode != ReplayLog.GAME_START && opcode != ReplayLog.GAME_END && opcode != ReplayLog.GOLD_SPAWNED;
+    }
+
+    // a copy of the map seeded as the game starting at this offset was, checked to be the map it was recorded on
+    private Map copyMap(int start) {
+        Map map = new Map(this.map, new GameRandom(this.replay.getLong(start + SEED)));
+        if (map.getHash() != this.replay.getLong(start + MAP_HASH)) {
+            throw new RuntimeException("The replay was recorded on another map than " + this.map.getMapName() + ".");
+        }
+        return map;
+    }
+
+    // The human's commands, read from the turns of the human recorded between two offsets of the replay
+    private class RecordedCommands implements CommandSource {
+
+        private int offset;
+        private final int end;
+
+        RecordedCommands(int offset, int end) {
+            this.offset = offset;
+            this.end = end;
+        }
+
+        public String nextCommand(Human human) {
+            while (this.offset < this.end) {
+                byte opcode = Replay.this.replay.get(this.offset);
+                this.offset += recordLength(opcode);
+                if (isTurn(opcode) && (opcode & ReplayLog.BOT) == 0) {
+                    return toCommand(opcode);
+                }
+            }
+            // the game was played differently and has gone on for longer than recorded
+            return "quit";
+        }
+
+        // the command the human typed to play the opcode
+        private String toCommand(byte opcode) {
+            switch (opcode) {
+                case ReplayLog.HELLO:
+                    return "hello";
+                case ReplayLog.GOLD:
+                    return "gold";
+                case ReplayLog.PICKUP:
+                    return "pickup";
+                case ReplayLog.LOOK:
+                    return "look";
+                case ReplayLog.QUIT:
+                    return "quit";
+                case ReplayLog.MOVE_NORTH:
+                    return "move n";
+                case ReplayLog.MOVE_EAST:
+                    return "move e";
+                case ReplayLog.MOVE_SOUTH:
+                    return "move s";
+                case ReplayLog.MOVE_WEST:
+                    return "move w";
+                default:
+                    // anything the human typed that wasn't a command
+                    return "";
+            }
+        }
+    }
+
+    // Replays a game straight onto a copy of its map from the recorded positions and gold spawns,
+    // a record at a time, without running the bots or drawing a single random number
+    private class FastForward {
+
+        private final Map map;
+        private int offset;
+        private final int end;
+        // turns replayed so far
+        private int turn = 0;
+        private int humanIndex;
+        private int botIndex;
+        private int humanGold = 0;
+        private int botGold = 0;
+
+        FastForward(int game) {
+            if (game < 0 || game >= Replay.this.gameStarts.size()) {
+                throw new RuntimeException("The replay has no game " + (game + 1) + ", it has "
+                        + Replay.this.gameStarts.size() + ".");
+            }
+            int start = Replay.this.gameStarts.get(game);
+            this.map = Replay.this.copyMap(start);
+            this.offset = start + ReplayLog.GAME_START_LENGTH;
+            this.end = Replay.this.gameEnds.get(game);
+            this.humanIndex = Replay.this.replay.getInt(start + HUMAN_INDEX);
+            this.botIndex = Replay.this.replay.getInt(start + BOT_INDEX);
+            this.getTile(this.humanIndex).addHuman();
+            this.getTile(this.botIndex).addBot();
+        }
+
+        // replays the records of the next turn and any gold spawned after it,
+        // returns false once the game has no turns left
+        boolean next() {
+            ByteBuffer replay = Replay.this.replay;
+            boolean played = false;
+            while (this.offset < this.end) {
+                byte opcode = replay.get(this.offset);
+                if (played && opcode != ReplayLog.GOLD_SPAWNED) {
+                    break;
+                }
+                if (opcode == ReplayLog.GAME_END) {
+                    this.offset = this.end;
+                    break;
+                }
+                int index = replay.getInt(this.offset + 1);
+                this.offset += recordLength(opcode);
+                if (opcode == ReplayLog.GOLD_SPAWNED) {
+                    this.getTile(index).addGold();
+                    this.map.incrementGoldCount();
+                } else {
+                    this.play(opcode, index);
+                    played = true;
+                }
+            }
+            return played;
+        }
+
+        // moves the player of the turn to where it ended up, and picks up its gold
+        private void play(byte opcode, int index) {
+            boolean bot = (opcode & ReplayLog.BOT) != 0;
+            int previousIndex = bot ? this.botIndex : this.humanIndex;
+            if (index != previousIndex) {
+                if (bot) {
+                    this.getTile(previousIndex).removeBot();
+                    this.getTile(index).addBot();
+                    this.botIndex = index;
+                } else {
+                    this.getTile(previousIndex).removeHuman();
+                    this.getTile(index).addHuman();
+                    this.humanIndex = index;
+                }
+            }
+            Tile tile = this.getTile(index);
+            if ((opcode & ReplayLog.COMMAND_MASK) == ReplayLog.PICKUP && tile.hasGold()) {
+                tile.removeGold();
+                this.map.decrementGoldCount();
+                if (bot) {
+                    this.botGold++;
+                } else {
+                    this.humanGold++;
+                }
+            }
+            this.turn++;
+        }
+
+        void printStatus() {
+            System.out.printf("Turn %d: human at (%d, %d) with %d gold, bot at (%d, %d) with %d gold,"
+                            + " %d gold on the map\n", this.turn,
+                    this.map.getRowOf(this.humanIndex), this.map.getColOf(this.humanIndex), this.humanGold,
+                    this.map.getRowOf(this.botIndex), this.map.getColOf(this.botIndex), this.botGold,
+                    this.map.getGoldCount());
+        }
+
+        private Tile getTile(int index) {
+            return this.map.getTile(this.map.getRowOf(index), this.map.getColOf(index));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+public class ReplayLog {
+
+    // Records games as they are played, append-only, so that they can be replayed offline (see Replay)
+    // without anyone typing the human's commands again. A game is recorded as:
+    //  game start   1 byte opcode GAME_START, then the seed of the map's random number generator (long),
+    //               the map's hash (long, see Map.getHash), the difficulty (1 byte, 0 Normal or 1 Impossible),
+    //               the turn limit (int, zero for none) and where the human and the bot spawned (2 ints)
+    //  turns        1 byte opcode of the command played, with BOT set on the bot's turns, then the index
+    //               of the cell the player is on after it (int)
+    //  gold spawned 1 byte opcode GOLD_SPAWNED, then the index of the cell (int)
+    //  game end     1 byte opcode GAME_END, then the GameResult ordinal (1 byte) and the turns played (int)
+    // The file starts with the magic 'D' 'O' 'D' 'R' and VERSION, numbers are big-endian.
+    // The seed alone is enough to play a game again (the bots and spawns only depend on it), the positions
+    // and gold spawns let a replay skip straight to any turn without running the bots.
+    // Records go into a preallocated buffer that is only written out through the channel once full,
+    // so recording a turn is a handful of puts.
+
+    static final byte[] MAGIC = {'D', 'O', 'D', 'R'};
+    static final byte VERSION = 1;
+
+    // commands, the opcodes of turns
+    static final byte HELLO = 0;
+    static final byte GOLD = 1;
+    static final byte PICKUP = 2;
+    static final byte LOOK = 3;
+    static final byte QUIT = 4;
+    static final byte MOVE_NORTH = 5;
+    static final byte MOVE_EAST = 6;
+    static final byte MOVE_SOUTH = 7;
+    static final byte MOVE_WEST = 8;
+    // the human's command was not understood
+    static final byte INVALID = 9;
+    // the player's turn passed without any command
+    static final byte NOTHING = 10;
+    // set on the opcodes of the bot's turns
+    static final byte BOT = (byte) 0x80;
+    // mask of the command of a turn's opcode
+    static final byte COMMAND_MASK = 0x7F;
+
+    // records that aren't turns
+    static final byte GOLD_SPAWNED = 0x10;
+    static final byte GAME_START = 0x20;
+    static final byte GAME_END = 0x21;
+
+    // bytes of each kind of record
+    static final int TURN_LENGTH = 1 + 4;
+    static final int GAME_START_LENGTH = 1 + 8 + 8 + 1 + 4 + 4 + 4;
+    static final int GAME_END_LENGTH = 1 + 1 + 4;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    // direct, so that the channel writes it without copying it first
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // records to the channel, e.g. a FileChannel or an in-memory channel that Replay compares
+    public ReplayLog(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer.put(MAGIC).put(VERSION);
+    }
+
+    // records to a new file, replacing any file already there
+    public static ReplayLog create(String filePath) {
+        try {
+            return new ReplayLog(FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create the replay file " + filePath + ".");
+        }
+    }
+
+    // the game is about to play its first turn
+    public void recordGameStart(long seed, long mapHash, String difficulty, int maxTurns, int humanIndex,
+                                int botIndex) {
+        this.reserve(GAME_START_LENGTH);
+        this.buffer.put(GAME_START).putLong(seed).putLong(mapHash)
+                .put((byte) (difficulty.equals("Normal") ? 0 : 1)).putInt(maxTurns).putInt(humanIndex).putInt(botIndex);
+    }
+
+    // the human or the bot played the command, and is now on the cell at this index
+    public void recordTurn(boolean bot, byte command, int index) {
+        this.reserve(TURN_LENGTH);
+        this.buffer.put(bot ? (byte) (command | BOT) : command).putInt(index);
+    }
+
+    // gold spawned on the cell at this index
+    public void recordGoldSpawned(int index) {
+        this.reserve(TURN_LENGTH);
+        this.buffer.put(GOLD_SPAWNED).putInt(index);
+    }
+
+    public void recordGameEnd(GameResult result, int turns) {
+        this.reserve(GAME_END_LENGTH);
+        this.buffer.put(GAME_END).put((byte) result.ordinal()).putInt(turns);
+    }
+
+    // writes out everything recorded so far and closes the channel
+    public void close() {
+        this.flush();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not close the replay: " + e.getMessage());
+        }
+    }
+
+    // difficulty of a game start record
+    static String getDifficulty(byte difficulty) {
+        return difficulty == 0 ? "Normal" : "Impossible";
+    }
+
+    // writes out the buffer first if the record doesn't fit in it
+    private void reserve(int length) {
+        if (this.buffer.remaining() < length) {
+            this.flush();
+        }
+    }
+
+    // writes out the records in the buffer
+    private void flush() {
+        this.buffer.flip();
+        try {
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write the replay: " + e.getMessage());
+        }
+        this.buffer.clear();
+    }
+}
@@ -0,0 +1,39 @@
+import java.io.*;
+import java.util.*;
+
+public class ScriptedCommands implements CommandSource {
+
+    // Plays the human from a fixed list of commands, e.g. to replay the same moves against different bots.
+    // Once the script runs out the human quits, so that every simulated game ends.
+
+    private final List<String> commands;
+    private int nextIndex = 0;
+
+    public ScriptedCommands(List<String> commands) {
+        this.commands = commands;
+    }
+
+    // reads one command per line from a script file, ignoring blank lines
+    public static List<String> readScript(String filePath) {
+        ArrayList<String> commands = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) {
+                    commands.add(line.trim().toLowerCase());
+                }
+            }
+        } catch (IOException e) {
+            // Cannot continue without the script, terminate by throwing a runtime exception
+            throw new RuntimeException("There was an error reading the script file " + filePath + ".");
+        }
+        return commands;
+    }
+
+    public String nextCommand(Human human) {
+        if (this.nextIndex >= this.commands.size()) {
+            return "quit";
+        }
+        return this.commands.get(this.nextIndex++);
+    }
+}
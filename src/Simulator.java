@@ -0,0 +1,143 @@
+import java.io.*;
+import java.util.*;
+
+public class Simulator {
+
+    // Plays many complete games headless, without any console input or output, and reports how they ended.
+    // This is used to tune the bots' difficulty by simulating at scale instead of playing by hand.
+
+    // Usage: java -cp out Simulator <map file> <human> <bot> <games> [max turns] [transcript=<file>] [replay=<file>]
+    //  human: greedy (see AutoPilot) or script=<file> (see ScriptedCommands)
+    //  bot: normal (SmartBot) or impossible (OmniscientBot)
+    //  transcript: everything the games print is written to the file, as the console would show it,
+    //              by a background thread (see AsyncSink). Without it nothing is even formatted
+    //  replay: every game is recorded to the file, to be played back by Replay
+
+    // turn limit used when none is given, so that two players who never finish can't loop forever
+    private static final int DEFAULT_MAX_TURNS = 10000;
+
+    private final String difficulty;
+    // null when the human is played by the AutoPilot
+    private final List<String> script;
+    private final int maxTurns;
+    // where every game reports what happens, discarded unless a transcript is written
+    private OutputSink output = new NullSink();
+    // records every game when set, null otherwise
+    private ReplayLog replayLog;
+
+    // the map as loaded from the file, every game is played on its own copy
+    private final Map map;
+    // how the games ended
+    private final GameStatistics statistics = new GameStatistics();
+
+    public Simulator(String mapFilePath, String human, String bot, int maxTurns) {
+
+        this.map = new Map(mapFilePath);
+        // built here, before any game is played, so that every copy of the map shares it instead of
+        // building its own, and games on other threads never race to build it (see Tournament)
+        this.map.getExitField();
+        this.maxTurns = maxTurns;
+
+        if (human.equals("greedy")) {
+            this.script = null;
+        } else if (human.startsWith("script=")) {
+            this.script = ScriptedCommands.readScript(human.substring(7));
+        } else {
+            throw new RuntimeException("Unknown human player " + human + ", expected greedy or script=<file>.");
+        }
+
+        if (bot.equals("normal")) {
+            this.difficulty = "Normal";
+        } else if (bot.equals("impossible")) {
+            this.difficulty = "Impossible";
+        } else {
+            throw new RuntimeException("Unknown bot " + bot + ", expected normal or impossible.");
+        }
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 4) {
+            System.err.println("Usage: java -cp out Simulator <map file> <greedy|script=<file>> <normal|impossible>"
+                    + " <games> [max turns] [transcript=<file>] [replay=<file>]");
+            System.exit(1);
+        }
+
+        int games = Integer.parseInt(args[3]);
+        int maxTurns = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MAX_TURNS;
+        Simulator simulator = new Simulator(args[0], args[1], args[2], maxTurns);
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].startsWith("transcript=")) {
+                String transcriptFilePath = args[i].substring(11);
+                try {
+                    simulator.setOutput(new AsyncSink(new FileOutputStream(transcriptFilePath)));
+                } catch (FileNotFoundException e) {
+                    throw new RuntimeException("Could not write the transcript to " + transcriptFilePath + ".");
+                }
+            } else if (args[i].startsWith("replay=")) {
+                simulator.setReplayLog(ReplayLog.create(args[i].substring(7)));
+            } else {
+                throw new RuntimeException("Unknown option " + args[i] + ", expected transcript=<file> or replay=<file>.");
+            }
+        }
+
+        long startTime = System.nanoTime();
+        simulator.run(games, new GameRandom().nextLong());
+        // waits for the transcript and the replay to be written
+        simulator.getOutput().close();
+        if (simulator.replayLog != null) {
+            simulator.replayLog.close();
+        }
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        simulator.getStatistics().print(System.out);
+        System.out.println("Simulated in " + elapsedMillis + " ms.");
+    }
+
+    // plays the number of games one after another, the seeds of the games are seed, seed + 1, ...
+    public void run(int games, long seed) {
+        for (int i = 0; i < games; i++) {
+            this.playGame(seed + i);
+        }
+    }
+
+    // Plays one game on its own copy of the map and records how it ended. Unless a transcript or replay is
+    // written, everything the game reports is discarded and the game shares nothing with other games,
+    // so it can be played on any thread
+    public void playGame(long seed) {
+
+        Map map = new Map(this.map, new GameRandom(seed));
+        CommandSource commandSource = this.script == null ? new AutoPilot() : new ScriptedCommands(this.script);
+
+        Game game = new Game(map, commandSource, this.difficulty, this.output);
+        game.setMaxTurns(this.maxTurns);
+        game.setReplayLog(this.replayLog);
+        GameResult result = game.play();
+
+        this.statistics.record(result, game.getTurns());
+        if (game.getBot() instanceof OmniscientBot) {
+            OmniscientBot bot = (OmniscientBot) game.getBot();
+            this.statistics.recordPathCache(bot.getPathCacheHits(), bot.getPathCacheMisses());
+        }
+    }
+
+    // how the games played so far ended
+    public GameStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    // where every game reports what happens
+    public OutputSink getOutput() {
+        return this.output;
+    }
+
+    // reports every game to this sink instead of discarding it, the games must then be played one at a time
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    // records every game to the replay log, the games must then be played one at a time
+    public void setReplayLog(ReplayLog replayLog) {
+        this.replayLog = replayLog;
+    }
+}
@@ -1,8 +1,10 @@
+import java.nio.*;
 import java.util.*;
 
 public class SmartBot extends Bot {
 
-    final private Random random = new Random();
+    // split off the map's generator, so that seeding the map also seeds where the bot wanders
+    final private GameRandom random;
     // Does the bot have a current objective?
     private TileNode objectiveTileNode = null;
     // What is it in words? This is so the bot knows what to do once it's reached
@@ -12,8 +14,9 @@ public class SmartBot extends Bot {
     // Initialise as 3 since the bot should start the game by looking
     private int turnsSinceLastLook = 3;
 
-    public SmartBot(Map mp, Game g) {
-        super(mp, g);
+    public SmartBot(Map mp, Game g, boolean spawn) {
+        super(mp, g, spawn);
+        this.random = mp.getRandom().split();
     }
 
     // This bot is only smart, it chases objectives based on its last look,
@@ -68,7 +71,7 @@ public class SmartBot extends Bot {
         } else if (this.currentObjective != null) {
 
             // SmartBot has reached the objective
-            if (this.getTile() == this.objectiveTileNode.getTile()) {
+            if (this.getTile().equals(this.objectiveTileNode.getTile())) {
 
                 // decide what to do based on the objective
                 if (this.currentObjective.equals("human")) {
@@ -120,7 +123,8 @@ public class SmartBot extends Bot {
     }
 
     // find new objective for the bot, based on 5x5 look centered on bot, sets if found
-    private void findObjective() {
+    // (package-private so that Benchmark can measure it)
+    void findObjective() {
 
         Tile initialTile = this.getTile();
         Map map = this.getMap();
@@ -128,119 +132,74 @@ public class SmartBot extends Bot {
         // Importantly, the objective will only be set if the bot can path to it,
         // the TileNode will then store all the information to traverse the path from start to finish
 
-        // credits to this discussion: https://stackoverflow.com/q/39266903
-        // I used this, my own knowledge of Dijkstra's priority queue implementation in Python
-        // and the docs https://docs.oracle.com/javase/8/docs/api/java/util/PriorityQueue.html
-
-        // 1. The priority queue will keep extending potential paths from the bot's initial stationary position.
-        // 2. It will stop when it finds a path to one of its objectives.
-        // 3. This path will have the shortest distance (greedy property of Dijkstra's) between bot and objective.
+        // 1. The shared PathFinder searches outwards from the bot's initial stationary position,
+        // only within the 5x5 grid of its look.
+        // 2. It will stop when it finds one of its objectives.
+        // 3. Every move costs 1, so this breadth-first search finds the shortest distance between bot and objective.
         // 4. The SmartBot will store the path, if found, and keep getting the next tile in the path.
         // It will move along the path via that tile each turn until reaching its objective (the end of the path).
 
-        // The comparator is used to order the elements in the queue
-        PriorityQueue<TileNode> minHeap = new PriorityQueue<>(new TileNodeComparator());
-
-        // Creates a node from a tile (TileNode) at the bot's initial stationary position.
-        // This TileNode will form a path leading from the bot to a potential objective.
-        // Initialises the minHeap with this node
-        minHeap.add(new TileNode(initialTile, 0, null));
-
-        // stores TileNodes that have been visited to avoid an infinite loop when exploring
-        HashSet<TileNode> visited = new HashSet<>();
-
         // Can the bot chase the exit and win?
         boolean botHasEnoughGold = this.hasEnoughGoldToWin();
 
-        // The bot's stationary position
-        int initialRow = initialTile.getRow();
-        int initialCol = initialTile.getCol();
-
-        // Search for the closest objective
-        while (!minHeap.isEmpty()) {
-
-            // Greedy property of Dijkstra's algorithm: each tileNode polled from the minHeap has
-            // the shortest distance from the bot
-            TileNode tileNode = minHeap.poll();
+        PathFinder pathFinder = map.getPathFinder();
+        int objective = pathFinder.findNearestObjective(
+                map.getIndex(initialTile.getRow(), initialTile.getCol()), botHasEnoughGold, 2);
 
-            // only visit new nodes to avoid an infinite loop when exploring
-            if (visited.contains(tileNode)) {
-                continue;
-            }
-
-            // add polled tileNode to visit set
-            visited.add(tileNode);
-
-            // attributes of the polled tileNode
-            Tile tile = tileNode.getTile();
-            int distanceFromBot = tileNode.getDistanceFromBot();
-
-            // current position of the head of a path
-            int row = tile.getRow();
-            int col = tile.getCol();
-
-            // SmartBot can only search within the 5x5 grid of its look
-            if (Math.abs(initialRow - row) > 2 || Math.abs(initialCol - col) > 2) {
-                continue;
-            }
-
-            // If objective is found, stop the search
-            if (this.isCurrentObjective(tile)) {
-
-                // Catching the human is unlikely since they may have moved
-                // by the time the bot reaches them so SmartBot will prioritise looting
-                // (also may catch the human on his way to the gold)
-
-                // Exit tile with enough gold
-                if (botHasEnoughGold && (tile instanceof ExitTile)) {
-                    this.setCurrentObjective("exit");
-                    // Gold tile and needs more gold
-                } else if (tile.hasGold() && !botHasEnoughGold) {
-                    this.setCurrentObjective("gold");
-                    // Human
-                } else {
-                    this.setCurrentObjective("human");
-                }
-
-                // Once the objective is found, initialise the shortest path
-                // so that the bot can take that path to the objective
-                tileNode.initialisePath();
-
-                // Store the tileNode as the objective
-                this.setObjectiveTileNode(tileNode);
-                return;
-            }
+        // Finally, if no objectives are found, clear objective that may still exist
+        // (e.g. bot reached a human objective, looked and found nothing)
+        if (objective == -1) {
+            this.clearObjective();
+            return;
+        }
 
-            // Otherwise, explore neighbouring tiles of the polled tileNode
-            for (int[] direction : this.directions) {
+        Tile tile = map.getTile(map.getRowOf(objective), map.getColOf(objective));
+
+        // Catching the human is unlikely since they may have moved
+        // by the time the bot reaches them so SmartBot will prioritise looting
+        // (also may catch the human on his way to the gold)
+
+        // Exit tile with enough gold
+        if (botHasEnoughGold && (tile instanceof ExitTile)) {
+            this.setCurrentObjective("exit");
+            // Gold tile and needs more gold
+        } else if (tile.hasGold() && !botHasEnoughGold) {
+            this.setCurrentObjective("gold");
+            // Human
+        } else {
+            this.setCurrentObjective("human");
+        }
 
-                // get position of neighbouring tile to search based off the path head's (TileNode) current position
-                int neighbourTileRow = row + direction[0];
-                int neighbourTileColumn = col + direction[1];
+        // Once the objective is found, build the chain of TileNodes along the shortest path
+        // and initialise it so that the bot can take that path to the objective
+        TileNode tileNode = this.buildPath(objective);
+        tileNode.initialisePath();
 
-                if (map.isOutOfBounds(neighbourTileRow, neighbourTileColumn)) {
-                    continue;
-                }
+        // Store the tileNode as the objective
+        this.setObjectiveTileNode(tileNode);
+    }
 
-                Tile neighbourTile = map.getTile(neighbourTileRow, neighbourTileColumn);
+    // Creates the chain of TileNodes from the bot to the objective found by the last PathFinder search.
+    // The path is at most a few tiles long since it stays within the 5x5 look
+    private TileNode buildPath(int objective) {
 
-                // neighbouring tile is a wall tile, cannot explore
-                if (!neighbourTile.canEnter()) {
-                    continue;
-                }
+        Map map = this.getMap();
+        PathFinder pathFinder = map.getPathFinder();
 
-                // The neighbouring tile passed all checks
-                // Add it to the minHeap as a TileNode with:
-                // 1. the tile it represents
-                // 2. distance has increased by 1,
-                // 3. the parent is the old polled TileNode
-                minHeap.add(new TileNode(neighbourTile, distanceFromBot + 1, tileNode));
-            }
+        // walk back from the objective to the bot to collect the cells of the path in reverse
+        ArrayList<Integer> reversedPath = new ArrayList<>();
+        for (int index = objective; index != -1; index = pathFinder.getParent(index)) {
+            reversedPath.add(index);
         }
 
-        // Finally, if the heap empties and no objectives are found, clear objective
-        // that may still exist (e.g. bot reached a human objective, looked and found nothing)
-        this.clearObjective();
+        // then link TileNodes from the bot's position (distance 0) to the objective
+        TileNode tileNode = null;
+        for (int distanceFromBot = 0; distanceFromBot < reversedPath.size(); distanceFromBot++) {
+            int index = reversedPath.get(reversedPath.size() - 1 - distanceFromBot);
+            Tile tile = map.getTile(map.getRowOf(index), map.getColOf(index));
+            tileNode = new TileNode(tile, distanceFromBot, tileNode);
+        }
+        return tileNode;
     }
 
     // moves the bot randomly but not into walls
@@ -268,6 +227,67 @@ public class SmartBot extends Bot {
         this.moveToTile(newRow, newCol);
     }
 
+    // the objectives as they are written in a snapshot, by their position in the array
+    private static final String[] OBJECTIVES = {"gold", "exit", "human"};
+
+    // bytes writeState writes
+    int getStateLength() {
+        int pathLength = this.objectiveTileNode == null ? 0 : this.objectiveTileNode.getDistanceFromBot() + 1;
+        return super.getStateLength() + 8 + 8 + 4 + 1 + 4 + 4 * pathLength + 4;
+    }
+
+    // Writes the tile, gold, random number generator and objective of the bot to a snapshot of its game
+    // (see GameSnapshot). The objective is written as the cells of its path from where the bot looked,
+    // and how far along the path the bot has moved
+    void writeState(ByteBuffer buffer) {
+        super.writeState(buffer);
+        buffer.putLong(this.random.getState()).putLong(this.random.getGamma()).putInt(this.turnsSinceLastLook);
+        if (this.objectiveTileNode == null) {
+            buffer.put((byte) -1).putInt(0).putInt(0);
+            return;
+        }
+
+        buffer.put((byte) Arrays.asList(OBJECTIVES).indexOf(this.currentObjective));
+        Map map = this.getMap();
+        int pathLength = this.objectiveTileNode.getDistanceFromBot() + 1;
+        buffer.putInt(pathLength);
+        // the nodes are linked back from the objective, each is written at its distance along the path
+        int start = buffer.position();
+        for (TileNode node = this.objectiveTileNode; node != null; node = node.getParent()) {
+            Tile tile = node.getTile();
+            buffer.putInt(start + 4 * node.getDistanceFromBot(), map.getIndex(tile.getRow(), tile.getCol()));
+        }
+        buffer.position(start + 4 * pathLength);
+        buffer.putInt(this.objectiveTileNode.getPointerDistance());
+    }
+
+    // goes back to the state written by writeState, building the path of the objective again
+    void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        this.random.setState(buffer.getLong(), buffer.getLong());
+        this.turnsSinceLastLook = buffer.getInt();
+        byte objective = buffer.get();
+        int pathLength = buffer.getInt();
+
+        this.clearObjective();
+        if (pathLength > 0) {
+            Map map = this.getMap();
+            TileNode tileNode = null;
+            for (int distanceFromBot = 0; distanceFromBot < pathLength; distanceFromBot++) {
+                int index = buffer.getInt();
+                tileNode = new TileNode(map.getTile(map.getRowOf(index), map.getColOf(index)), distanceFromBot, tileNode);
+            }
+            tileNode.initialisePath();
+            for (int distance = buffer.getInt(); distance > 0; distance--) {
+                tileNode.getNextTileNode();
+            }
+            this.setObjectiveTileNode(tileNode);
+            this.setCurrentObjective(objective == -1 ? null : OBJECTIVES[objective]);
+        } else {
+            buffer.getInt();
+        }
+    }
+
     // reset counter of turns since last look
     private void resetTurnsSinceLastLook() {
         this.turnsSinceLastLook = 0;
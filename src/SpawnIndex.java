@@ -0,0 +1,161 @@
+import java.nio.*;
+import java.util.*;
+
+public class SpawnIndex implements MapListener {
+
+    // Keeps the set of cells where gold or a player can spawn, so that a random spawn point is picked in
+    // constant time instead of trying random cells until one can be spawned on, which takes longer the
+    // fuller the map is and never ends on a full map. The rules are:
+    //  gold spawn point: an empty tile (not a wall or an exit) with no gold and no player on it
+    //  player spawn point: any tile but a wall with no gold and no player on it, so exits are included
+    // Every gold spawn point is also a player spawn point, so both sets share one array of cells:
+    //  [0, goldSpawnCount)           cells where gold and players can spawn
+    //  [goldSpawnCount, spawnCount)  cells where only players can spawn (exits)
+    // A cell is removed by swapping it with the last cell of its part, so changes are constant time too.
+    // Only cells in the playable component of the map are included (see ComponentIndex), so nothing spawns
+    // where it can't reach or be reached.
+
+    // what can spawn on a cell
+    private static final byte NOTHING = 0;
+    private static final byte PLAYER = 1;
+    private static final byte GOLD_AND_PLAYER = 2;
+
+    private final Map map;
+    private final int[] spawnCells;
+    // position of each cell in spawnCells, or -1 if nothing can spawn on it
+    private final int[] positionOf;
+    private int goldSpawnCount = 0;
+    private int spawnCount = 0;
+    // the component of the map where things spawn
+    private final int playableComponent;
+
+    public SpawnIndex(Map map) {
+        this.map = map;
+        int cellCount = map.getCellCount();
+        this.spawnCells = new int[cellCount];
+        this.positionOf = new int[cellCount];
+        this.playableComponent = map.getComponentIndex().getPlayableComponent();
+        this.build();
+    }
+
+    // Returns a random cell where gold can spawn, picked with rand so that seeded maps spawn the same gold
+    public int getRandomGoldSpawn(GameRandom rand) {
+        if (this.goldSpawnCount == 0) {
+            // Cannot spawn gold anywhere, terminate by throwing a runtime exception
+            throw new RuntimeException("There are no tiles left on the map for gold to spawn on.");
+        }
+        return this.spawnCells[rand.nextInt(this.goldSpawnCount)];
+    }
+
+    // Returns a random cell where a player can spawn, picked with rand so that seeded maps spawn the same players
+    public int getRandomPlayerSpawn(GameRandom rand) {
+        if (this.spawnCount == 0) {
+            // Cannot spawn the player anywhere, terminate by throwing a runtime exception
+            throw new RuntimeException("There are no tiles left on the map for a player to spawn on.");
+        }
+        return this.spawnCells[rand.nextInt(this.spawnCount)];
+    }
+
+    // bytes writeState writes
+    int getStateLength() {
+        return 4 + 4 + 4 * this.spawnCount;
+    }
+
+    // Writes the spawn cells in their order to a snapshot of the game (see GameSnapshot). Which cell a random
+    // spawn picks depends on the order, which depends on every change since the set was built, so it has to
+    // be saved for a restored game to spawn the same gold as the original
+    void writeState(ByteBuffer buffer) {
+        buffer.putInt(this.goldSpawnCount).putInt(this.spawnCount);
+        buffer.asIntBuffer().put(this.spawnCells, 0, this.spawnCount);
+        buffer.position(buffer.position() + 4 * this.spawnCount);
+    }
+
+    // goes back to the order written by writeState, once the cells of the map have been restored
+    void readState(ByteBuffer buffer) {
+        for (int position = 0; position < this.spawnCount; position++) {
+            this.positionOf[this.spawnCells[position]] = -1;
+        }
+        this.goldSpawnCount = buffer.getInt();
+        this.spawnCount = buffer.getInt();
+        buffer.asIntBuffer().get(this.spawnCells, 0, this.spawnCount);
+        buffer.position(buffer.position() + 4 * this.spawnCount);
+        for (int position = 0; position < this.spawnCount; position++) {
+            this.positionOf[this.spawnCells[position]] = position;
+        }
+    }
+
+    // moves the cell to the part of the array for what can now spawn on it
+    public void cellChanged(int index, byte previousCell, byte cell) {
+        byte previousType = this.spawnTypeOf(index, previousCell);
+        byte type = this.spawnTypeOf(index, cell);
+        if (previousType != type) {
+            this.remove(index, previousType);
+            this.add(index, type);
+        }
+    }
+
+    // adds every cell something can spawn on, in index order
+    private void build() {
+        Arrays.fill(this.positionOf, -1);
+        for (int index = 0; index < this.spawnCells.length; index++) {
+            this.add(index, this.spawnTypeOf(index, this.map.getCell(index)));
+        }
+    }
+
+    // what can spawn on the packed cell at this index, following the rules above,
+    // if the cell is in the playable component
+    private byte spawnTypeOf(int index, byte cell) {
+        if ((cell & (Map.GOLD | Map.HUMAN | Map.BOT)) != 0
+                || this.map.getComponentIndex().getComponent(index) != this.playableComponent) {
+            return NOTHING;
+        }
+        switch (cell & Map.TERRAIN_MASK) {
+            case Map.EMPTY:
+                return GOLD_AND_PLAYER;
+            case Map.EXIT:
+                return PLAYER;
+            default:
+                return NOTHING;
+        }
+    }
+
+    // appends the cell to the end of its part
+    private void add(int index, byte type) {
+        if (type == NOTHING) {
+            return;
+        }
+        this.place(index, this.spawnCount);
+        this.spawnCount++;
+        if (type == GOLD_AND_PLAYER) {
+            // swap it with the first player only cell to move it into the gold part
+            this.swap(this.positionOf[index], this.goldSpawnCount);
+            this.goldSpawnCount++;
+        }
+    }
+
+    // removes the cell by swapping it with the last cell of its part
+    private void remove(int index, byte type) {
+        if (type == NOTHING) {
+            return;
+        }
+        if (type == GOLD_AND_PLAYER) {
+            // move it to the end of the gold part, which is then shrunk so that it becomes a player only cell
+            this.goldSpawnCount--;
+            this.swap(this.positionOf[index], this.goldSpawnCount);
+        }
+        this.spawnCount--;
+        this.swap(this.positionOf[index], this.spawnCount);
+        this.positionOf[index] = -1;
+    }
+
+    private void swap(int first, int second) {
+        int firstCell = this.spawnCells[first];
+        this.place(this.spawnCells[second], first);
+        this.place(firstCell, second);
+    }
+
+    private void place(int index, int position) {
+        this.spawnCells[position] = index;
+        this.positionOf[index] = position;
+    }
+}
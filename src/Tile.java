@@ -1,10 +1,8 @@
 public abstract class Tile {
 
-    // These properties store what type of entity is on top of the tile.
-    // In the current implementation, all 3 could exist on 1 tile.
-    private boolean gold = false;
-    private boolean human = false;
-    private boolean bot = false;
+    // What type of entity is on top of the tile (gold, human, bot) is stored in the Map's packed grid,
+    // a Tile is only a view over one cell of it. In the current implementation, all 3 could exist on 1 tile.
+    private final Map map;
 
     // One of the current lose conditions (isHumanTouchingBot) depends
     // on this feature. If the program was extended, this would probably need restructuring.
@@ -18,11 +16,29 @@ public abstract class Tile {
     private final int row;
     private final int col;
 
-    public Tile(int row, int col) {
+    public Tile(Map map, int row, int col) {
+        this.map = map;
         this.row = row;
         this.col = col;
     }
 
+    // Views are created on demand, so two views are the same tile if they point at the same cell
+    public boolean equals(Object obj) {
+        if (obj instanceof Tile) {
+            Tile tile = (Tile) obj;
+            return tile.map == this.map && tile.row == this.row && tile.col == this.col;
+        }
+        return false;
+    }
+
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + this.row;
+        result = prime * result + this.col;
+        return result;
+    }
+
     // getters and setters
 
     public int getRow() {
@@ -34,81 +50,41 @@ public abstract class Tile {
     }
 
     public boolean hasGold() {
-        return this.gold;
+        return this.map.hasFlag(this.row, this.col, Map.GOLD);
     }
 
     public void addGold() {
-        this.gold = true;
+        this.map.setFlag(this.row, this.col, Map.GOLD);
     }
 
     public void removeGold() {
-        this.gold = false;
+        this.map.clearFlag(this.row, this.col, Map.GOLD);
     }
 
     public boolean hasHuman() {
-        return this.human;
+        return this.map.hasFlag(this.row, this.col, Map.HUMAN);
     }
 
     public void addHuman() {
-        this.human = true;
+        this.map.setFlag(this.row, this.col, Map.HUMAN);
     }
 
     public void removeHuman() {
-        this.human = false;
+        this.map.clearFlag(this.row, this.col, Map.HUMAN);
     }
 
     public boolean hasBot() {
-        return this.bot;
+        return this.map.hasFlag(this.row, this.col, Map.BOT);
     }
 
     public void addBot() {
-        this.bot = true;
+        this.map.setFlag(this.row, this.col, Map.BOT);
     }
 
     public void removeBot() {
-        this.bot = false;
+        this.map.clearFlag(this.row, this.col, Map.BOT);
     }
 
     // All tiles other than walls can be entered by players
     abstract boolean canEnter();
-
-    public boolean isNotPlayerSpawnPoint() {
-        // For a player to be able to spawn on this tile, it must not contain:
-        // 1. Gold
-        // 2. Another Player
-        // 3. Wall
-        // but may contain:
-        // 1. Exit
-        // only returns false when tile has no gold, no player, no wall
-        return (this.hasGold() || this.hasBot() || this.hasHuman() || !this.canEnter());
-    }
-
-    public boolean isNotGoldSpawnPoint() {
-        // I decided for gold to be able to spawn on this tile, it must not contain:
-        // Gold, Player, Wall, Exit
-        // Even though there is repetition, I think it's unwise for it to depend on isNotPlayerSpawnPoint
-        return (this.hasGold() || this.hasBot() || this.hasHuman() || !this.canEnter() || this instanceof ExitTile);
-    }
-
-    public void print() {
-        // Since players can be on top of gold and gold can be on top of tile,
-        // Print priority:
-        // 1. Players
-        // 2. Gold
-        // 3. Tile
-         if (this.hasBot()) {
-             System.out.print("B");
-         } else if (this.hasHuman()) {
-             System.out.print("P");
-         } else if (this.hasGold()) {
-             System.out.print("G");
-         } else {
-             printTile();
-         }
-    }
-
-    // It doesn't make sense for Tile as an abstract class to have a symbol
-    // field, so I defer to subclasses to implement that
-    abstract void printTile();
-
 }
\ No newline at end of file
@@ -23,12 +23,12 @@ public class TileNode {
     // The equals and hashCode methods below are adapted from: https://stackoverflow.com/a/62483457
 
     // We assert that TileNodes are the same if they have the same Tile
-    // The Tiles will reference the same objects in the 2D grid since they do not change once the map is instantiated
+    // Tiles are views created on demand by the Map, so they are compared by the cell they point at
     public boolean equals(Object obj) { // adapted from: https://stackoverflow.com/a/62483457
         if (obj instanceof TileNode) {
             // cast obj as a TileNode object since instanceof returned true
             TileNode tileNode = (TileNode) obj;
-            return tileNode.getTile() == this.tile;
+            return tileNode.getTile().equals(this.tile);
         }
         return false;
     }
@@ -77,17 +77,6 @@ public class TileNode {
         }
     }
 
-    // gets the first tile of the path of nodes
-    public Tile getFirstTileOfPath() {
-        // If initialisePath has not yet been called or the pointerNode is not at the
-        // root parent of the path
-        if (this.pointerNode == null || this.pointerNode.getParent() != null) {
-            // traverse up the parents, initialising the path
-            this.initialisePath();
-        }
-        return this.pointerNode.getTile();
-    }
-
     // peek the next child node in the path
     public boolean hasNextTileNode() {
         return this.pointerNode.getChild() != null;
@@ -103,4 +92,9 @@ public class TileNode {
     public int getDistanceFromBot() {
         return this.distanceFromBot;
     }
+
+    // distance from the stationary bot of the node the path has been followed to
+    public int getPointerDistance() {
+        return this.pointerNode == null ? 0 : this.pointerNode.getDistanceFromBot();
+    }
 }
@@ -0,0 +1,74 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+public class Tournament {
+
+    // Plays many independent headless games at once across all cores, for every pairing of a map with a bot.
+    // Each game is played on its own copy of the map with its own seeded random number generator and
+    // reports to a sink that discards everything unformatted, so games share nothing but the lock-free
+    // GameStatistics counters.
+    // Games with the same index use the same seed in every pairing, so the bots face the same spawns.
+
+    // Usage: java -cp out Tournament <games per pairing> <seed> <map file> [map file ...]
+
+    // the bots every map is played against, as passed to Simulator
+    private static final String[] BOTS = {"normal", "impossible"};
+
+    // one Simulator per pairing of a map with a bot
+    private final ArrayList<Simulator> pairings = new ArrayList<>();
+    private final ArrayList<String> pairingNames = new ArrayList<>();
+    private final ForkJoinPool pool;
+
+    public Tournament(List<String> mapFilePaths, int maxTurns, int threads) {
+        for (String mapFilePath : mapFilePaths) {
+            for (String bot : BOTS) {
+                this.pairings.add(new Simulator(mapFilePath, "greedy", bot, maxTurns));
+                this.pairingNames.add(mapFilePath + " vs " + bot);
+            }
+        }
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 3) {
+            System.err.println("Usage: java -cp out Tournament <games per pairing> <seed> <map file> [map file ...]");
+            System.exit(1);
+        }
+
+        int games = Integer.parseInt(args[0]);
+        long seed = Long.parseLong(args[1]);
+        List<String> mapFilePaths = Arrays.asList(args).subList(2, args.length);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Tournament tournament = new Tournament(mapFilePaths, 10000, threads);
+
+        long startTime = System.nanoTime();
+        tournament.run(games, seed);
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        tournament.printStatistics();
+        System.out.println("Played " + (long) games * tournament.pairings.size() + " games on " + threads
+                + " threads in " + elapsedMillis + " ms.");
+    }
+
+    // Plays the games of every pairing on the fork-join pool. The games of all pairings are split as one range,
+    // so that the pool's work stealing keeps every thread busy until the very last game
+    public void run(int games, long seed) throws InterruptedException, ExecutionException {
+        long totalGames = (long) games * this.pairings.size();
+        this.pool.submit(() -> LongStream.range(0, totalGames).parallel().forEach(i -> {
+            Simulator simulator = this.pairings.get((int) (i / games));
+            simulator.playGame(seed + i % games);
+        })).get();
+    }
+
+    // prints the statistics of each pairing
+    public void printStatistics() {
+        for (int i = 0; i < this.pairings.size(); i++) {
+            System.out.println(this.pairingNames.get(i));
+            this.pairings.get(i).getStatistics().print(System.out);
+            System.out.println();
+        }
+    }
+}
@@ -1,6 +1,6 @@
 import java.io.*;
 
-public class UserInput {
+public class UserInput implements CommandSource {
 
     // This class centralizes user input stream handling, so that if the
     // implementation needs to change it can in one place (Single Responsibility Principle).
@@ -75,6 +75,11 @@ public class UserInput {
         return "";
     }
 
+    // the human's commands are typed in by the user
+    public String nextCommand(Human human) {
+        return this.readLowerCaseString();
+    }
+
     // close the stream, Game is given responsibility for opening/closing the stream
     public void closeStream() {
         try {
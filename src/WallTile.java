@@ -1,9 +1,7 @@
 public class WallTile extends Tile {
 
-    char symbol = '#';
-
-    public WallTile(int row, int col) {
-        super(row, col);
+    public WallTile(Map map, int row, int col) {
+        super(map, row, col);
     }
 
     // cannot enter wall
@@ -11,8 +9,4 @@ public class WallTile extends Tile {
         return false;
     }
 
-    public void printTile() {
-        System.out.print(this.symbol);
-    }
-
 }